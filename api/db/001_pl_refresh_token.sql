@@ -0,0 +1,11 @@
+-- Generación vigente de los refresh tokens de cada sesión (RefreshTokenStore).
+-- Ejecutar una vez sobre uteq_web_bd antes de desplegar la API.
+-- Una sesión sin fila está en la generación 0.
+
+CREATE TABLE IF NOT EXISTS pl_refresh_token (
+    id_session  UUID PRIMARY KEY,
+    generation  INTEGER NOT NULL,
+    date_update TIMESTAMPTZ NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS ix_refresh_token_date_update ON pl_refresh_token (date_update);
@@ -0,0 +1,24 @@
+-- Outbox transaccional de emails (EmailOutboxService).
+-- Ejecutar una vez sobre uteq_web_bd antes de desplegar la API.
+-- html_body se vacía al llegar a un estado final y las filas finales se
+-- purgan tras mail.outbox.retention-days.
+
+CREATE TABLE IF NOT EXISTS pl_email_outbox (
+    id_outbox       BIGSERIAL PRIMARY KEY,
+    type_templ      VARCHAR(10),
+    recipient       TEXT NOT NULL,
+    subject         TEXT NOT NULL,
+    html_body       TEXT NOT NULL,
+    status          VARCHAR(10) NOT NULL DEFAULT 'PENDING',
+    attempts        INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    last_error      TEXT,
+    date_register   TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    date_sent       TIMESTAMPTZ
+);
+
+CREATE INDEX IF NOT EXISTS ix_email_outbox_pending ON pl_email_outbox (next_attempt_at)
+    WHERE status IN ('PENDING', 'SENDING');
+
+CREATE INDEX IF NOT EXISTS ix_email_outbox_final ON pl_email_outbox (date_register)
+    WHERE status IN ('SENT', 'FAILED', 'THROTTLED');
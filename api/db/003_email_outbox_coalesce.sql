@@ -0,0 +1,16 @@
+-- Agrupación de notificaciones en pl_email_outbox (EmailOutboxService.enqueueCoalesced).
+-- Ejecutar una vez sobre uteq_web_bd, después de 002_pl_email_outbox.sql y
+-- antes de desplegar la API.
+
+ALTER TABLE pl_email_outbox
+    ADD COLUMN IF NOT EXISTS coalesce_key TEXT,
+    ADD COLUMN IF NOT EXISTS coalesced_events TEXT;
+
+-- Una sola fila abierta por clave: pendiente y aún sin intentos (un reintento
+-- ya no acepta más eventos).
+CREATE UNIQUE INDEX IF NOT EXISTS ux_email_outbox_coalesce ON pl_email_outbox (coalesce_key)
+    WHERE status = 'PENDING' AND attempts = 0;
+
+-- Último email de cada clave, para decidir si el siguiente sale ya o se agrupa.
+CREATE INDEX IF NOT EXISTS ix_email_outbox_coalesce_key ON pl_email_outbox (coalesce_key)
+    WHERE coalesce_key IS NOT NULL;
@@ -0,0 +1,11 @@
+-- Sesiones revocadas (cerradas o eliminadas) que SessionRevocationService
+-- recarga al (re)conectar el listener, incluidas las ya borradas de
+-- pl_session_user. Ejecutar una vez sobre uteq_web_bd antes de desplegar la API.
+-- Las filas se purgan cuando ya no puede quedar ningún token vigente de la sesión.
+
+CREATE TABLE IF NOT EXISTS pl_session_revoked (
+    id_session   UUID PRIMARY KEY,
+    date_revoked TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+CREATE INDEX IF NOT EXISTS ix_session_revoked_date_revoked ON pl_session_revoked (date_revoked);
@@ -0,0 +1,49 @@
+package com.uteq.api.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uteq.api.service.JwtService;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Registra el filtro de autenticación JWT justo después del filtro CORS.
+ */
+@Configuration
+public class AuthFilterConfig {
+
+    /**
+     * Prefijos que requieren un access token válido.
+     */
+    @Value("${auth.filter.protected-paths}")
+    private List<String> protectedPaths;
+
+    /**
+     * Excepciones públicas dentro de los prefijos protegidos ("[MÉTODO] /ruta").
+     */
+    @Value("${auth.filter.public-paths:}")
+    private List<String> publicPaths;
+
+    @Bean
+    public FilterRegistrationBean<JwtAuthenticationFilter> jwtAuthenticationFilter(
+            JwtService jwtService,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) throws IOException {
+        JwtAuthenticationFilter filter = new JwtAuthenticationFilter(
+                jwtService,
+                objectMapper,
+                meterRegistry,
+                protectedPaths.stream().filter(path -> !path.isBlank()).toList(),
+                publicPaths.stream().filter(path -> !path.isBlank()).toList());
+
+        FilterRegistrationBean<JwtAuthenticationFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 1);
+        return registration;
+    }
+}
@@ -0,0 +1,27 @@
+package com.uteq.api.config;
+
+/**
+ * Resultado de la calibración de BCrypt al arrancar.
+ *
+ * @param strength   Factor de trabajo (cost) elegido para este nodo
+ * @param hashMillis Tiempo medido de un hash con ese factor, en milisegundos
+ */
+public record BCryptCalibration(int strength, double hashMillis) {
+
+    /**
+     * Extrae el factor de trabajo de un hash BCrypt ($2a$12$...).
+     *
+     * @return el cost del hash, o -1 si no tiene formato BCrypt
+     */
+    public static int strengthOf(String hash) {
+        if (hash == null || hash.length() < 7 || !hash.startsWith("$2") || hash.charAt(3) != '$'
+                || hash.charAt(6) != '$') {
+            return -1;
+        }
+        try {
+            return Integer.parseInt(hash, 4, 6, 10);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
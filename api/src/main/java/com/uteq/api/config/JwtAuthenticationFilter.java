@@ -0,0 +1,230 @@
+package com.uteq.api.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uteq.api.dto.ErrorResponse;
+import com.uteq.api.service.JwtService;
+import com.uteq.api.service.TokenClaims;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UriUtils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Filtro de autenticación ligero para los controladores CRUD.
+ *
+ * Sin la cadena completa de Spring Security: por petición solo compara el path
+ * contra prefijos precompilados, lee el header Authorization y verifica el
+ * token con JwtService (caché de tokens verificados incluida). Los claims
+ * quedan en el atributo CLAIMS_ATTRIBUTE de la petición.
+ *
+ * - Rutas: "/api/users" protege /api/users y /api/users/**. Una ruta pública
+ * puede llevar método ("GET /api/countries") y tiene prioridad.
+ * - Las rutas se comparan con el path decodificado y normalizado (sin "//",
+ * "." ni ".."), el mismo que enruta Spring MVC. Un path ambiguo (';',
+ * barra o backslash codificados, doble codificación o ".." fuera de la raíz)
+ * se rechaza con 400 (PTHNVD) en cualquier ruta.
+ * - En un path ya normalizado (el caso habitual) el único String creado es el
+ * propio token; las respuestas 400/401 están serializadas de antemano.
+ * - El costo del filtro se mide en auth.filter.duration.
+ */
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    /**
+     * Atributo de la petición con los TokenClaims del usuario autenticado
+     */
+    public static final String CLAIMS_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".claims";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private static final String INVALID_PATH_ATTRIBUTE = JwtAuthenticationFilter.class.getName() + ".invalidPath";
+
+    private final JwtService jwtService;
+    private final Route[] protectedRoutes;
+    private final Route[] publicRoutes;
+    private final byte[] invalidPathBody;
+    private final byte[] missingTokenBody;
+    private final byte[] invalidTokenBody;
+    private final Timer filterTimer;
+
+    public JwtAuthenticationFilter(
+            JwtService jwtService,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            List<String> protectedPaths,
+            List<String> publicPaths) throws IOException {
+        this.jwtService = jwtService;
+        this.protectedRoutes = protectedPaths.stream().map(Route::parse).toArray(Route[]::new);
+        this.publicRoutes = publicPaths.stream().map(Route::parse).toArray(Route[]::new);
+        this.invalidPathBody = objectMapper.writeValueAsBytes(
+                ErrorResponse.builder().message("PTHNVD").code("").build());
+        this.missingTokenBody = objectMapper.writeValueAsBytes(
+                ErrorResponse.builder().message("TKNREQ").code("").build());
+        this.invalidTokenBody = objectMapper.writeValueAsBytes(
+                ErrorResponse.builder().message("TKNINV").code("").build());
+        this.filterTimer = Timer.builder("auth.filter.duration")
+                .description("Costo del filtro de autenticación por petición protegida")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        // Preflight CORS nunca lleva token
+        if ("OPTIONS".equals(request.getMethod())) {
+            return true;
+        }
+        String path = normalizedPath(request.getRequestURI(), request.getContextPath().length());
+        if (path == null) {
+            request.setAttribute(INVALID_PATH_ATTRIBUTE, Boolean.TRUE);
+            return false;
+        }
+        String method = request.getMethod();
+        return matchesAny(publicRoutes, method, path) || !matchesAny(protectedRoutes, method, path);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if (request.getAttribute(INVALID_PATH_ATTRIBUTE) != null) {
+            reject(response, HttpServletResponse.SC_BAD_REQUEST, invalidPathBody);
+            return;
+        }
+        long start = System.nanoTime();
+
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header == null
+                || header.length() <= BEARER_PREFIX.length()
+                || !header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            filterTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            reject(response, HttpServletResponse.SC_UNAUTHORIZED, missingTokenBody);
+            return;
+        }
+
+        Optional<TokenClaims> claims = jwtService.verifyToken(header.substring(BEARER_PREFIX.length()));
+        filterTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+        // Un refresh token no sirve para acceder a recursos
+        if (claims.isEmpty() || claims.get().isRefreshToken() || claims.get().userId() == null) {
+            reject(response, HttpServletResponse.SC_UNAUTHORIZED, invalidTokenBody);
+            return;
+        }
+
+        request.setAttribute(CLAIMS_ATTRIBUTE, claims.get());
+        chain.doFilter(request, response);
+    }
+
+    private static void reject(HttpServletResponse response, int status, byte[] body) throws IOException {
+        response.setStatus(status);
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setContentLength(body.length);
+        response.getOutputStream().write(body);
+    }
+
+    private static boolean matchesAny(Route[] routes, String method, String path) {
+        for (Route route : routes) {
+            if (route.matches(method, path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Path de la petición sin el context path, decodificado y normalizado.
+     *
+     * @return el path, o null si es ambiguo y debe rechazarse
+     */
+    static String normalizedPath(String uri, int offset) {
+        boolean clean = true;
+        char previous = 0;
+        for (int i = offset; i < uri.length(); i++) {
+            char c = uri.charAt(i);
+            if (c == ';' || c == '\\') {
+                return null;
+            }
+            if (c == '%' || c == '.' || (c == '/' && previous == '/')) {
+                clean = false;
+            }
+            previous = c;
+        }
+        if (clean) {
+            return offset == 0 ? uri : uri.substring(offset);
+        }
+
+        String raw = uri.substring(offset);
+        String lower = raw.toLowerCase(Locale.ROOT);
+        // Barra, backslash, ';' o '%' codificados cambian la estructura del path según quién lo decodifique
+        if (lower.contains("%2f") || lower.contains("%5c") || lower.contains("%3b") || lower.contains("%25")) {
+            return null;
+        }
+        String decoded;
+        try {
+            decoded = UriUtils.decode(raw, StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+
+        Deque<String> segments = new ArrayDeque<>();
+        for (String segment : decoded.split("/")) {
+            if (segment.isEmpty() || segment.equals(".")) {
+                continue;
+            }
+            if (segment.equals("..")) {
+                if (segments.pollLast() == null) {
+                    return null;
+                }
+                continue;
+            }
+            segments.addLast(segment);
+        }
+        return "/" + String.join("/", segments);
+    }
+
+    /**
+     * Prefijo de ruta, opcionalmente restringido a un método HTTP.
+     */
+    private record Route(String method, String prefix) {
+
+        static Route parse(String spec) {
+            String trimmed = spec.trim();
+            int space = trimmed.indexOf(' ');
+            if (space < 0) {
+                return new Route(null, stripTrailingSlash(trimmed));
+            }
+            return new Route(trimmed.substring(0, space).toUpperCase(),
+                    stripTrailingSlash(trimmed.substring(space + 1).trim()));
+        }
+
+        private static String stripTrailingSlash(String path) {
+            return path.length() > 1 && path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        }
+
+        /**
+         * Compara sin crear Strings: el prefijo debe coincidir y terminar en
+         * un límite de segmento.
+         */
+        boolean matches(String requestMethod, String path) {
+            if (method != null && !method.equals(requestMethod)) {
+                return false;
+            }
+            if (!path.startsWith(prefix)) {
+                return false;
+            }
+            return path.length() == prefix.length() || path.charAt(prefix.length()) == '/';
+        }
+    }
+}
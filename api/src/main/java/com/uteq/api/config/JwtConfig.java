@@ -20,4 +20,38 @@ public class JwtConfig {
 
     @Value("${jwt.refresh-expiration}")
     private Long refreshExpiration;
+
+    /**
+     * Algoritmo de firma: HS256 (secreto compartido), ES256 o EdDSA. Se
+     * escribe exactamente así, como en el header alg de JOSE.
+     */
+    @Value("${jwt.algorithm:HS256}")
+    private String algorithm;
+
+    /**
+     * Clave privada PEM (PKCS#8) para ES256/EdDSA.
+     */
+    @Value("${jwt.signing.private-key:}")
+    private String signingPrivateKey;
+
+    /**
+     * Clave pública PEM (X.509) correspondiente a la privada.
+     */
+    @Value("${jwt.signing.public-key:}")
+    private String signingPublicKey;
+
+    /**
+     * Clave pública PEM anterior, que se sigue aceptando y publicando tras una rotación.
+     */
+    @Value("${jwt.signing.previous-public-key:}")
+    private String previousSigningPublicKey;
+
+    /**
+     * Con ES256/EdDSA, acepta además tokens HS256 sin kid emitidos antes del
+     * cambio. Debe activarse solo durante una vida de refresh token
+     * (jwt.refresh-expiration) tras el cambio: mientras está activo, quien
+     * conozca jwt.secret puede seguir firmando tokens válidos.
+     */
+    @Value("${jwt.accept-legacy-hs256:false}")
+    private boolean acceptLegacyHs256;
 }
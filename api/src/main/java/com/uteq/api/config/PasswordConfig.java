@@ -1,5 +1,9 @@
 package com.uteq.api.config;
 
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
@@ -16,20 +20,98 @@ import org.springframework.security.crypto.password.PasswordEncoder;
  * - Resistente a ataques de rainbow tables y fuerza bruta
  */
 @Configuration
+@Slf4j
 public class PasswordConfig {
 
+    private static final String CALIBRATION_PASSWORD = "calibracion-bcrypt";
+
+    /**
+     * Strength común a todo el clúster; 0 activa la calibración automática
+     * (solo recomendable con un único nodo).
+     */
+    @Value("${password.bcrypt.strength:0}")
+    private int fixedStrength;
+
+    @Value("${password.bcrypt.min-strength:10}")
+    private int minStrength;
+
+    @Value("${password.bcrypt.max-strength:14}")
+    private int maxStrength;
+
     /**
-     * Crea un bean de PasswordEncoder usando BCrypt con strength 12.
+     * Presupuesto de latencia por hash usado en la calibración.
+     */
+    @Value("${password.bcrypt.target-ms:250}")
+    private long targetMillis;
+
+    /**
+     * Usa el strength configurado para el clúster o, si no hay, mide el costo
+     * de BCrypt en el hardware actual y elige el mayor strength que se
+     * mantiene dentro del presupuesto de latencia.
      * 
-     * Strength (factor de trabajo):
+     * Con varios nodos el strength debe configurarse: cada nodo calibraría un
+     * valor distinto y los hashes se re-codificarían según el nodo que
+     * atendiera el login.
+     * 
+     * Strength (factor de trabajo), cada punto duplica el costo:
      * - 10: Rápido, seguridad básica
      * - 12: Balanceado (recomendado para la mayoría de aplicaciones)
      * - 14+: Muy seguro pero más lento
      * 
+     * @return strength elegido y tiempo de hash medido
+     */
+    @Bean
+    public BCryptCalibration bcryptCalibration(MeterRegistry meterRegistry) {
+        int strength;
+        if (fixedStrength > 0) {
+            strength = fixedStrength;
+        } else {
+            log.warn("password.bcrypt.strength no está configurado; se calibra en este nodo. "
+                    + "Con varios nodos fije PASSWORD_BCRYPT_STRENGTH al valor calibrado");
+            // Se mide el strength mínimo y se extrapola (cada punto duplica el costo)
+            measureMillis(minStrength);
+            double baseMillis = Math.min(measureMillis(minStrength), measureMillis(minStrength));
+            strength = minStrength;
+            while (strength < maxStrength && baseMillis * (1L << (strength + 1 - minStrength)) <= targetMillis) {
+                strength++;
+            }
+        }
+
+        double hashMillis = measureMillis(strength);
+        // La extrapolación puede quedarse corta; se confirma con una medición real
+        while (fixedStrength <= 0 && hashMillis > targetMillis && strength > minStrength) {
+            strength--;
+            hashMillis = measureMillis(strength);
+        }
+
+        BCryptCalibration calibration = new BCryptCalibration(strength, hashMillis);
+        log.info("BCrypt calibrado: strength {} ({} ms por hash, presupuesto {} ms)",
+                strength, String.format("%.1f", hashMillis), targetMillis);
+
+        Gauge.builder("password.bcrypt.strength", calibration, BCryptCalibration::strength)
+                .description("Factor de trabajo BCrypt elegido en este nodo")
+                .register(meterRegistry);
+        Gauge.builder("password.bcrypt.calibration.millis", calibration, BCryptCalibration::hashMillis)
+                .description("Tiempo de hash medido al calibrar")
+                .register(meterRegistry);
+
+        return calibration;
+    }
+
+    /**
+     * Crea un bean de PasswordEncoder usando BCrypt con el strength calibrado.
+     * 
      * @return BCryptPasswordEncoder configurado
      */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder(12);
+    public PasswordEncoder passwordEncoder(BCryptCalibration bcryptCalibration) {
+        return new BCryptPasswordEncoder(bcryptCalibration.strength());
+    }
+
+    private static double measureMillis(int strength) {
+        BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+        long start = System.nanoTime();
+        encoder.encode(CALIBRATION_PASSWORD);
+        return (System.nanoTime() - start) / 1_000_000.0;
     }
 }
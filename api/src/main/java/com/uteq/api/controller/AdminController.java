@@ -0,0 +1,35 @@
+package com.uteq.api.controller;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.uteq.api.config.JwtAuthenticationFilter;
+import com.uteq.api.service.AdminAccessService;
+import com.uteq.api.service.PasswordMigrationService;
+import com.uteq.api.service.TokenClaims;
+
+import lombok.RequiredArgsConstructor;
+
+@RestController
+@RequestMapping("/api/admin")
+@RequiredArgsConstructor
+public class AdminController {
+
+    private final PasswordMigrationService passwordMigrationService;
+    private final AdminAccessService adminAccessService;
+
+    @GetMapping("/password-migration")
+    public ResponseEntity<Map<String, Object>> getPasswordMigrationStatus(
+            @RequestAttribute(name = JwtAuthenticationFilter.CLAIMS_ATTRIBUTE, required = false) TokenClaims claims) {
+        adminAccessService.requireAdmin(claims);
+        Map<String, Object> response = new HashMap<>();
+        response.put("legacyUsers", passwordMigrationService.countLegacyUsers());
+        return ResponseEntity.ok(response);
+    }
+}
@@ -1,6 +1,7 @@
 package com.uteq.api.controller;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.springframework.http.ResponseEntity;
@@ -23,9 +24,12 @@ import com.uteq.api.exception.ResourceExpiredException;
 import com.uteq.api.exception.ResourceNotFoundException;
 import com.uteq.api.exception.ValidationException;
 import com.uteq.api.service.AuthService;
-import com.uteq.api.service.EmailService;
+import com.uteq.api.service.LoginRateLimiter;
 import com.uteq.api.service.RecaptchaService;
+import com.uteq.api.service.RecaptchaVerdictCache;
+import com.uteq.api.service.TokenIntrospectionService;
 
+import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 
 @RestController
@@ -35,16 +39,28 @@ public class AuthController {
 
     private final AuthService authService;
     private final RecaptchaService recaptchaService;
-    private final EmailService emailService;
+    private final LoginRateLimiter loginRateLimiter;
+    private final TokenIntrospectionService tokenIntrospectionService;
 
     @PostMapping("/login")
-    public ResponseEntity<Map<String, Object>> login(@RequestBody LoginRequest request) {
-        // Verificar reCAPTCHA
-        if (!recaptchaService.verifyRecaptcha(request.getRecaptchaToken())) {
-            throw new AuthenticationException("RCPTER", "reCAPTCHA verification failed");
-        }
+    public ResponseEntity<Map<String, Object>> login(@RequestBody LoginRequest request, HttpServletRequest httpRequest) {
+        // Descartar fuerza bruta antes de cualquier trabajo de BD, hash o reCAPTCHA
+        String clientIp = httpRequest.getRemoteAddr();
+        loginRateLimiter.checkAllowed(request.getUsername(), clientIp);
 
-        Map<String, Object> result = authService.login(request.getUsername(), request.getPassword());
+        // Verificar reCAPTCHA en paralelo con la BD; se exige antes del commit
+        String clientFingerprint = fingerprintOf(httpRequest);
+        Map<String, Object> result;
+        try {
+            RecaptchaVerdictCache.Claim recaptcha = recaptchaService.startVerification(request.getRecaptchaToken(), "login", clientFingerprint);
+            result = authService.login(request.getUsername(), request.getPassword(), recaptcha);
+        } catch (AuthenticationException e) {
+            // Un reCAPTCHA inválido también cuenta como intento fallido
+            if ("RCPTER".equals(e.getErrorCode())) {
+                loginRateLimiter.recordFailure(request.getUsername(), clientIp);
+            }
+            throw e;
+        }
         String codemsg = (String) result.get("codemsg");
 
         // Lanzar excepciones según el código de error
@@ -54,21 +70,15 @@ public class AuthController {
             case "PSWNVD":
                 throw new ValidationException("PSWNVD", "Contraseña no válida");
             case "USRNEX":
+                loginRateLimiter.recordFailure(request.getUsername(), clientIp);
                 throw new ResourceNotFoundException("USRNEX", "Usuario no existe");
             case "PSWINC":
+                loginRateLimiter.recordFailure(request.getUsername(), clientIp);
                 throw new AuthenticationException("PSWINC", "Contraseña incorrecta");
             case "ERRORE":
                 throw new RuntimeException("Error interno del sistema");
             case "USRCCT":
-                // Login exitoso - enviar email de notificación
-                try {
-                    Map<String, Object> userData = (Map<String, Object>) result.get("datauser");
-                    String email = (String) userData.get("email");
-                    String username = (String) userData.get("username");
-                    emailService.sendLoginNotificationEmail(email, username);
-                } catch (Exception e) {
-                    System.err.println("Error sending login email: " + e.getMessage());
-                }
+                loginRateLimiter.recordSuccess(request.getUsername());
                 return ResponseEntity.ok(result);
             default:
                 throw new RuntimeException("Código de respuesta desconocido: " + codemsg);
@@ -76,18 +86,18 @@ public class AuthController {
     }
 
     @PostMapping("/register")
-    public ResponseEntity<Map<String, String>> register(@RequestBody RegisterRequest request) {
-        // Verificar reCAPTCHA
-        if (!recaptchaService.verifyRecaptcha(request.getRecaptchaToken())) {
-            throw new AuthenticationException("RCPTER", "reCAPTCHA verification failed");
-        }
+    public ResponseEntity<Map<String, String>> register(@RequestBody RegisterRequest request, HttpServletRequest httpRequest) {
+        // Verificar reCAPTCHA en paralelo con la BD; se exige antes del commit
+        String clientFingerprint = fingerprintOf(httpRequest);
+        RecaptchaVerdictCache.Claim recaptcha = recaptchaService.startVerification(request.getRecaptchaToken(), "register", clientFingerprint);
 
         String result = authService.register(
                 request.getFullName(),
                 request.getEmail(),
                 request.getUsername(),
                 request.getPassword(),
-                request.getIdCountry());
+                request.getIdCountry(),
+                recaptcha);
 
         // Lanzar excepciones según el código de error
         switch (result) {
@@ -108,12 +118,6 @@ public class AuthController {
             case "ERRDSC":
                 throw new ValidationException("ERRDSC", "Error desconocido");
             case "USRREX":
-                // Registro exitoso - enviar email de bienvenida
-                try {
-                    emailService.sendWelcomeEmail(request.getEmail(), request.getFullName());
-                } catch (Exception e) {
-                    System.err.println("Error sending welcome email: " + e.getMessage());
-                }
                 Map<String, String> response = new HashMap<>();
                 response.put("message", result);
                 return ResponseEntity.ok(response);
@@ -123,13 +127,12 @@ public class AuthController {
     }
 
     @PostMapping("/request-recovery")
-    public ResponseEntity<Map<String, Object>> requestRecovery(@RequestBody RecoveryRequest request) {
-        // Verificar reCAPTCHA
-        if (!recaptchaService.verifyRecaptcha(request.getRecaptchaToken())) {
-            throw new AuthenticationException("RCPTER", "reCAPTCHA verification failed");
-        }
+    public ResponseEntity<Map<String, Object>> requestRecovery(@RequestBody RecoveryRequest request, HttpServletRequest httpRequest) {
+        // Verificar reCAPTCHA en paralelo con la BD; se exige antes del commit
+        String clientFingerprint = fingerprintOf(httpRequest);
+        RecaptchaVerdictCache.Claim recaptcha = recaptchaService.startVerification(request.getRecaptchaToken(), "request-recovery", clientFingerprint);
 
-        Map<String, Object> result = authService.requestRecovery(request.getEmail());
+        Map<String, Object> result = authService.requestRecovery(request.getEmail(), recaptcha);
         String messageCode = (String) result.get("message");
 
         // Lanzar excepciones según el código de error
@@ -143,14 +146,6 @@ public class AuthController {
             case "SUNEXP":
                 throw new ConflictException("SUNEXP", "Ya existe una solicitud de recuperación activa");
             case "CODGEN":
-                // Código generado exitosamente - enviar email
-                try {
-                    String code = (String) result.get("code");
-                    String requestId = result.get("request_id").toString();
-                    emailService.sendRecoveryCodeEmail(request.getEmail(), code, requestId);
-                } catch (Exception e) {
-                    System.err.println("Error sending recovery email: " + e.getMessage());
-                }
                 return ResponseEntity.ok(result);
             default:
                 throw new RuntimeException("Código de respuesta desconocido: " + messageCode);
@@ -158,13 +153,12 @@ public class AuthController {
     }
 
     @PostMapping("/verify-code")
-    public ResponseEntity<Map<String, Object>> verifyCode(@RequestBody VerifyCodeRequest request) {
-        // Verificar reCAPTCHA
-        if (!recaptchaService.verifyRecaptcha(request.getRecaptchaToken())) {
-            throw new AuthenticationException("RCPTER", "reCAPTCHA verification failed");
-        }
+    public ResponseEntity<Map<String, Object>> verifyCode(@RequestBody VerifyCodeRequest request, HttpServletRequest httpRequest) {
+        // Verificar reCAPTCHA en paralelo con la BD; se exige antes del commit
+        String clientFingerprint = fingerprintOf(httpRequest);
+        RecaptchaVerdictCache.Claim recaptcha = recaptchaService.startVerification(request.getRecaptchaToken(), "verify-code", clientFingerprint);
 
-        Map<String, Object> result = authService.verifyCode(request.getCodeReq(), request.getCodeGen());
+        Map<String, Object> result = authService.verifyCode(request.getCodeReq(), request.getCodeGen(), recaptcha);
         String messageCode = (String) result.get("message");
 
         // Lanzar excepciones según el código de error
@@ -184,13 +178,6 @@ public class AuthController {
             case "CRQINV":
                 throw new ValidationException("CRQINV", "Código de solicitud inválido");
             case "CRQCOR":
-                // Código verificado exitosamente - enviar email
-                try {
-                    String email = (String) result.get("code");
-                    emailService.sendCodeVerifiedEmail(email, request.getCodeReq());
-                } catch (Exception e) {
-                    System.err.println("Error sending code verified email: " + e.getMessage());
-                }
                 return ResponseEntity.ok(result);
             default:
                 throw new RuntimeException("Código de respuesta desconocido: " + messageCode);
@@ -198,13 +185,12 @@ public class AuthController {
     }
 
     @PostMapping("/reset-password")
-    public ResponseEntity<Map<String, Object>> resetPassword(@RequestBody ResetPasswordRequest request) {
-        // Verificar reCAPTCHA
-        if (!recaptchaService.verifyRecaptcha(request.getRecaptchaToken())) {
-            throw new AuthenticationException("RCPTER", "reCAPTCHA verification failed");
-        }
+    public ResponseEntity<Map<String, Object>> resetPassword(@RequestBody ResetPasswordRequest request, HttpServletRequest httpRequest) {
+        // Verificar reCAPTCHA en paralelo con la BD; se exige antes del commit
+        String clientFingerprint = fingerprintOf(httpRequest);
+        RecaptchaVerdictCache.Claim recaptcha = recaptchaService.startVerification(request.getRecaptchaToken(), "reset-password", clientFingerprint);
 
-        Map<String, Object> result = authService.resetPassword(request.getCodeReq(), request.getPassword());
+        Map<String, Object> result = authService.resetPassword(request.getCodeReq(), request.getPassword(), recaptcha);
         String messageCode = (String) result.get("message");
 
         // Lanzar excepciones según el código de error
@@ -224,19 +210,21 @@ public class AuthController {
             case "CRQINV":
                 throw new ValidationException("CRQINV", "Código de solicitud inválido");
             case "PASUEX":
-                // Contraseña actualizada exitosamente - enviar email
-                try {
-                    String email = (String) result.get("code");
-                    emailService.sendPasswordUpdatedEmail(email);
-                } catch (Exception e) {
-                    System.err.println("Error sending password updated email: " + e.getMessage());
-                }
                 return ResponseEntity.ok(result);
             default:
                 throw new RuntimeException("Código de respuesta desconocido: " + messageCode);
         }
     }
 
+    /**
+     * Huella del cliente para la caché de veredictos reCAPTCHA. Detrás de un
+     * proxy, getRemoteAddr() es la IP del cliente gracias a
+     * server.forward-headers-strategy (ver TRUSTED_PROXIES).
+     */
+    private static String fingerprintOf(HttpServletRequest httpRequest) {
+        return httpRequest.getRemoteAddr() + "|" + httpRequest.getHeader("User-Agent");
+    }
+
     @PostMapping("/validate-token")
     public ResponseEntity<Map<String, Object>> validateToken(@RequestHeader("Authorization") String token) {
         if (token != null && token.startsWith("Bearer ")) {
@@ -245,6 +233,22 @@ public class AuthController {
         return ResponseEntity.ok(authService.validateToken(token));
     }
 
+    /**
+     * Valida varios tokens en una sola petición (gateways). Body: {"tokens": [...]}.
+     * Devuelve un resultado por token, en el mismo orden.
+     */
+    @PostMapping("/validate-tokens")
+    public ResponseEntity<Map<String, Object>> validateTokens(@RequestBody Map<String, List<String>> request) {
+        List<String> tokens = request.get("tokens");
+        if (tokens == null) {
+            throw new ValidationException("TKNREQ", "Tokens are required");
+        }
+
+        Map<String, Object> response = new HashMap<>();
+        response.put("results", tokenIntrospectionService.introspect(tokens));
+        return ResponseEntity.ok(response);
+    }
+
     @PostMapping("/refresh-token")
     public ResponseEntity<Map<String, Object>> refreshToken(@RequestBody Map<String, String> request) {
         String refreshToken = request.get("refreshToken");
@@ -1,8 +1,8 @@
 package com.uteq.api.controller;
 
-import java.util.List;
-
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -15,6 +15,7 @@ import org.springframework.web.bind.annotation.RestController;
 
 import com.uteq.api.entity.Country;
 import com.uteq.api.service.CountryService;
+import com.uteq.api.service.CountrySnapshot;
 
 import lombok.RequiredArgsConstructor;
 
@@ -25,29 +26,34 @@ public class CountryController {
     
     private final CountryService countryService;
     
+    /**
+     * Las lecturas devuelven el JSON ya serializado de CountrySnapshot con su
+     * ETag; Spring responde 304 por sí solo cuando If-None-Match coincide.
+     */
     @GetMapping
-    public ResponseEntity<List<Country>> getAllCountries() {
-        return ResponseEntity.ok(countryService.findAll());
+    public ResponseEntity<byte[]> getAllCountries() {
+        CountrySnapshot snapshot = countryService.snapshot();
+        return json(snapshot.json(), snapshot.etag());
     }
     
     @GetMapping("/{id}")
-    public ResponseEntity<Country> getCountryById(@PathVariable Integer id) {
-        return countryService.findById(id)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<byte[]> getCountryById(@PathVariable Integer id) {
+        return countryService.snapshot().findById(id)
+                .map(entry -> json(entry.json(), entry.etag()))
                 .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/alpha2/{code}")
-    public ResponseEntity<Country> getCountryByAlpha2(@PathVariable String code) {
-        return countryService.findByCodeAlpha2(code)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<byte[]> getCountryByAlpha2(@PathVariable String code) {
+        return countryService.snapshot().findByCodeAlpha2(code)
+                .map(entry -> json(entry.json(), entry.etag()))
                 .orElse(ResponseEntity.notFound().build());
     }
     
     @GetMapping("/alpha3/{code}")
-    public ResponseEntity<Country> getCountryByAlpha3(@PathVariable String code) {
-        return countryService.findByCodeAlpha3(code)
-                .map(ResponseEntity::ok)
+    public ResponseEntity<byte[]> getCountryByAlpha3(@PathVariable String code) {
+        return countryService.snapshot().findByCodeAlpha3(code)
+                .map(entry -> json(entry.json(), entry.etag()))
                 .orElse(ResponseEntity.notFound().build());
     }
     
@@ -76,4 +82,13 @@ public class CountryController {
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
+    
+    private static ResponseEntity<byte[]> json(byte[] body, String etag) {
+        // no-cache: el navegador guarda la respuesta pero la revalida con el ETag
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(etag)
+                .cacheControl(CacheControl.noCache())
+                .body(body);
+    }
 }
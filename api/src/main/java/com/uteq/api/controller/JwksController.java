@@ -0,0 +1,31 @@
+package com.uteq.api.controller;
+
+import java.time.Duration;
+import java.util.Map;
+
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.uteq.api.service.JwtService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Publica las claves públicas de firma de JWT (JWKS) para que otros servicios
+ * (p. ej. el gateway del coach de IA) verifiquen los tokens localmente.
+ */
+@RestController
+@RequiredArgsConstructor
+public class JwksController {
+
+    private final JwtService jwtService;
+
+    @GetMapping("/.well-known/jwks.json")
+    public ResponseEntity<Map<String, Object>> getJwks() {
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.maxAge(Duration.ofMinutes(5)).cachePublic())
+                .body(jwtService.getJwks());
+    }
+}
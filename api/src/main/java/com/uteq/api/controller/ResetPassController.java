@@ -1,6 +1,5 @@
 package com.uteq.api.controller;
 
-import java.util.List;
 import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
@@ -12,8 +11,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.uteq.api.entity.ResetPass;
 import com.uteq.api.service.ResetPassService;
 
@@ -25,10 +27,28 @@ import lombok.RequiredArgsConstructor;
 public class ResetPassController {
     
     private final ResetPassService resetPassService;
+    private final ObjectMapper objectMapper;
     
+    /**
+     * Sin parámetros, el array completo (contrato original). Con after o
+     * limit, una página por keyset: ?after=<nextCursor de la página anterior>&limit=n
+     */
     @GetMapping
-    public ResponseEntity<List<ResetPass>> getAllResets() {
-        return ResponseEntity.ok(resetPassService.findAll());
+    public ResponseEntity<?> getAllResets(
+            @RequestParam(required = false) Integer after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(resetPassService.findAll());
+        }
+        return ResponseEntity.ok(resetPassService.findPage(after, limit));
+    }
+    
+    /**
+     * Listado completo en NDJSON (?format=ndjson), leído con cursor.
+     */
+    @GetMapping(params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllResets(@RequestParam(required = false) Integer after) {
+        return NdjsonResponses.<ResetPass>stream(objectMapper, consumer -> resetPassService.streamAll(after, consumer));
     }
     
     @GetMapping("/{id}")
@@ -55,8 +75,19 @@ public class ResetPassController {
     public ResponseEntity<ResetPass> updateReset(@PathVariable Integer id, @RequestBody ResetPass resetPass) {
         return resetPassService.findById(id)
                 .map(existingReset -> {
-                    resetPass.setIdReset(id);
-                    return ResponseEntity.ok(resetPassService.save(resetPass));
+                    existingReset.setUser(resetPass.getUser());
+                    existingReset.setIdRequest(resetPass.getIdRequest());
+                    existingReset.setDateExpired(resetPass.getDateExpired());
+                    existingReset.setDateRegistration(resetPass.getDateRegistration());
+                    existingReset.setUsed(resetPass.getUsed());
+                    // Las contraseñas no se devuelven en las lecturas: si no vienen se conservan
+                    if (resetPass.getOldPassword() != null) {
+                        existingReset.setOldPassword(resetPass.getOldPassword());
+                    }
+                    if (resetPass.getNewPassword() != null) {
+                        existingReset.setNewPassword(resetPass.getNewPassword());
+                    }
+                    return ResponseEntity.ok(resetPassService.save(existingReset));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
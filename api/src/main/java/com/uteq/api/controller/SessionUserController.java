@@ -1,6 +1,5 @@
 package com.uteq.api.controller;
 
-import java.util.List;
 import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
@@ -12,8 +11,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.uteq.api.entity.SessionUser;
 import com.uteq.api.service.SessionUserService;
 
@@ -25,10 +27,28 @@ import lombok.RequiredArgsConstructor;
 public class SessionUserController {
     
     private final SessionUserService sessionUserService;
+    private final ObjectMapper objectMapper;
     
+    /**
+     * Sin parámetros, el array completo (contrato original). Con after o
+     * limit, una página por keyset: ?after=<nextCursor de la página anterior>&limit=n
+     */
     @GetMapping
-    public ResponseEntity<List<SessionUser>> getAllSessions() {
-        return ResponseEntity.ok(sessionUserService.findAll());
+    public ResponseEntity<?> getAllSessions(
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(sessionUserService.findAll());
+        }
+        return ResponseEntity.ok(sessionUserService.findPage(after, limit));
+    }
+    
+    /**
+     * Listado completo en NDJSON (?format=ndjson), leído con cursor.
+     */
+    @GetMapping(params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllSessions(@RequestParam(required = false) UUID after) {
+        return NdjsonResponses.<SessionUser>stream(objectMapper, consumer -> sessionUserService.streamAll(after, consumer));
     }
     
     @GetMapping("/{id}")
@@ -1,6 +1,5 @@
 package com.uteq.api.controller;
 
-import java.util.List;
 import java.util.UUID;
 
 import org.springframework.http.HttpStatus;
@@ -12,8 +11,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.uteq.api.entity.User;
 import com.uteq.api.service.UserService;
 
@@ -25,10 +27,28 @@ import lombok.RequiredArgsConstructor;
 public class UserController {
     
     private final UserService userService;
+    private final ObjectMapper objectMapper;
     
+    /**
+     * Sin parámetros, el array completo (contrato original). Con after o
+     * limit, una página por keyset: ?after=<nextCursor de la página anterior>&limit=n
+     */
     @GetMapping
-    public ResponseEntity<List<User>> getAllUsers() {
-        return ResponseEntity.ok(userService.findAll());
+    public ResponseEntity<?> getAllUsers(
+            @RequestParam(required = false) UUID after,
+            @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(userService.findAll());
+        }
+        return ResponseEntity.ok(userService.findPage(after, limit));
+    }
+    
+    /**
+     * Listado completo en NDJSON (?format=ndjson), leído con cursor.
+     */
+    @GetMapping(params = "format=ndjson")
+    public ResponseEntity<StreamingResponseBody> streamAllUsers(@RequestParam(required = false) UUID after) {
+        return NdjsonResponses.<User>stream(objectMapper, consumer -> userService.streamAll(after, consumer));
     }
     
     @GetMapping("/{id}")
@@ -62,8 +82,16 @@ public class UserController {
     public ResponseEntity<User> updateUser(@PathVariable UUID id, @RequestBody User user) {
         return userService.findById(id)
                 .map(existingUser -> {
-                    user.setIdUser(id);
-                    return ResponseEntity.ok(userService.save(user));
+                    existingUser.setFullName(user.getFullName());
+                    existingUser.setEmail(user.getEmail());
+                    existingUser.setUsername(user.getUsername());
+                    existingUser.setCountry(user.getCountry());
+                    existingUser.setIsPassTemp(user.getIsPassTemp());
+                    // password no se devuelve en las lecturas: si no viene se conserva
+                    if (user.getPassword() != null) {
+                        existingUser.setPassword(user.getPassword());
+                    }
+                    return ResponseEntity.ok(userService.save(existingUser));
                 })
                 .orElse(ResponseEntity.notFound().build());
     }
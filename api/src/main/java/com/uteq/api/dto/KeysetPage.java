@@ -0,0 +1,13 @@
+package com.uteq.api.dto;
+
+import java.util.List;
+
+/**
+ * Página de un listado por keyset.
+ *
+ * @param items      Filas de la página, ordenadas por clave primaria
+ * @param nextCursor Valor para el parámetro after de la siguiente página;
+ *                   null si no hay más filas
+ */
+public record KeysetPage<T>(List<T> items, String nextCursor) {
+}
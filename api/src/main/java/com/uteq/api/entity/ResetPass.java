@@ -1,5 +1,6 @@
 package com.uteq.api.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -36,9 +37,11 @@ public class ResetPass {
     @Column(name = "date_registration")
     private OffsetDateTime dateRegistration;
     
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(name = "old_password", length = 150, nullable = false)
     private String oldPassword;
     
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(name = "new_password", length = 150)
     private String newPassword;
     
@@ -1,5 +1,6 @@
 package com.uteq.api.entity;
 
+import com.fasterxml.jackson.annotation.JsonProperty;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
@@ -29,6 +30,7 @@ public class User {
     @Column(name = "username", length = 30, nullable = false, unique = true)
     private String username;
     
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     @Column(name = "password", length = 150, nullable = false)
     private String password;
     
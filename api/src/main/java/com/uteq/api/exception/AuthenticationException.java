@@ -12,6 +12,8 @@ import java.util.Map;
  * - USRERR: Error de usuario
  * - USRINV: Usuario inválido
  * - RCPTER: Error de reCAPTCHA
+ * - TKNREQ: Token requerido
+ * - TKNINV: Token inválido o expirado
  */
 public class AuthenticationException extends ApiException {
 
@@ -0,0 +1,24 @@
+package com.uteq.api.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+
+/**
+ * Excepción para accesos no permitidos (403 Forbidden).
+ * Se lanza cuando el usuario está autenticado pero no tiene permiso para la
+ * operación.
+ * 
+ * Códigos de error comunes:
+ * - ADMREQ: Se requiere un usuario administrador
+ */
+public class ForbiddenException extends ApiException {
+
+    public ForbiddenException(String errorCode, String message) {
+        super(errorCode, message, HttpStatus.FORBIDDEN);
+    }
+
+    public ForbiddenException(String errorCode, String message, Map<String, Object> additionalData) {
+        super(errorCode, message, HttpStatus.FORBIDDEN, additionalData);
+    }
+}
@@ -3,6 +3,7 @@ package com.uteq.api.exception;
 import com.uteq.api.dto.ErrorResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
@@ -64,6 +65,40 @@ public class GlobalExceptionHandler {
         return buildErrorResponse(ex);
     }
 
+    /**
+     * Maneja excepciones de acceso no permitido (403 Forbidden)
+     */
+    @ExceptionHandler(ForbiddenException.class)
+    public ResponseEntity<Object> handleForbiddenException(ForbiddenException ex, WebRequest request) {
+        logger.warn("Forbidden: {} - {}", ex.getErrorCode(), ex.getMessage());
+        return buildErrorResponse(ex);
+    }
+
+    /**
+     * Maneja excepciones de sobrecarga temporal (503 Service Unavailable).
+     * Incluye Retry-After para que el cliente sepa que puede reintentar.
+     */
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ResponseEntity<Object> handleServiceUnavailableException(ServiceUnavailableException ex, WebRequest request) {
+        logger.warn("Service unavailable: {} - {}", ex.getErrorCode(), ex.getMessage());
+        ResponseEntity<Object> response = buildErrorResponse(ex);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response.getBody());
+    }
+
+    /**
+     * Maneja excepciones de exceso de intentos (429 Too Many Requests)
+     */
+    @ExceptionHandler(TooManyRequestsException.class)
+    public ResponseEntity<Object> handleTooManyRequestsException(TooManyRequestsException ex, WebRequest request) {
+        logger.warn("Too many requests: {} - {}", ex.getErrorCode(), ex.getMessage());
+        ResponseEntity<Object> response = buildErrorResponse(ex);
+        return ResponseEntity.status(response.getStatusCode())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(ex.getRetryAfterSeconds()))
+                .body(response.getBody());
+    }
+
     /**
      * Maneja excepciones genéricas no capturadas (500 Internal Server Error)
      */
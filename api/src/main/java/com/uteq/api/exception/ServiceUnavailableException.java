@@ -0,0 +1,23 @@
+package com.uteq.api.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+
+/**
+ * Excepción para sobrecarga temporal del servidor (503 Service Unavailable).
+ * Se lanza cuando un recurso acotado está saturado; el cliente puede reintentar.
+ * 
+ * Códigos de error comunes:
+ * - SRVBSY: Servidor ocupado, reintentar más tarde
+ */
+public class ServiceUnavailableException extends ApiException {
+
+    public ServiceUnavailableException(String errorCode, String message) {
+        super(errorCode, message, HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
+    public ServiceUnavailableException(String errorCode, String message, Map<String, Object> additionalData) {
+        super(errorCode, message, HttpStatus.SERVICE_UNAVAILABLE, additionalData);
+    }
+}
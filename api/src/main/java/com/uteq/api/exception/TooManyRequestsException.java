@@ -0,0 +1,25 @@
+package com.uteq.api.exception;
+
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Excepción para exceso de intentos (429 Too Many Requests).
+ * Se lanza cuando un cliente supera el límite de intentos permitido.
+ * 
+ * Códigos de error comunes:
+ * - LGNLIM: Demasiados intentos fallidos de login
+ */
+@Getter
+public class TooManyRequestsException extends ApiException {
+
+    /**
+     * Segundos sugeridos al cliente antes de reintentar (cabecera Retry-After)
+     */
+    private final long retryAfterSeconds;
+
+    public TooManyRequestsException(String errorCode, String message, long retryAfterSeconds) {
+        super(errorCode, message, HttpStatus.TOO_MANY_REQUESTS);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
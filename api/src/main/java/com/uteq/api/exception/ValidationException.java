@@ -29,6 +29,8 @@ import java.util.Map;
  * - PSWEQS: Contraseñas iguales (no se puede usar la misma)
  * - IDUNVD: ID de usuario no válido
  * - IDSNVD: ID de sesión no válido
+ * - TKNLIM: Demasiados tokens en una introspección en lote
+ * - PTHNVD: Path ambiguo (';', barra codificada o '..' fuera de la raíz)
  */
 public class ValidationException extends ApiException {
 
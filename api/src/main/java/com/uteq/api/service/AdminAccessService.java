@@ -0,0 +1,46 @@
+package com.uteq.api.service;
+
+import com.uteq.api.exception.ForbiddenException;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Autorización de los endpoints de administración.
+ *
+ * El modelo de datos no tiene roles, así que los administradores se configuran
+ * por ID de usuario en auth.admin.user-ids. Se usa el ID y no el username
+ * porque el ID no cambia. Sin IDs configurados nadie es administrador.
+ */
+@Service
+public class AdminAccessService {
+
+    @Value("${auth.admin.user-ids:}")
+    private List<String> adminUserIds;
+
+    private Set<UUID> admins;
+
+    @PostConstruct
+    void init() {
+        admins = adminUserIds.stream()
+                .map(String::trim)
+                .filter(id -> !id.isEmpty())
+                .map(UUID::fromString)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * @param claims Claims del access token (atributo del filtro de autenticación)
+     * @throws ForbiddenException (ADMREQ) si no hay token o el usuario no es administrador
+     */
+    public void requireAdmin(TokenClaims claims) {
+        if (claims == null || claims.isRefreshToken() || !admins.contains(claims.userId())) {
+            throw new ForbiddenException("ADMREQ", "Se requiere un usuario administrador");
+        }
+    }
+}
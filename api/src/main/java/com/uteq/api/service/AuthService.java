@@ -2,16 +2,24 @@ package com.uteq.api.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uteq.api.exception.ApiException;
 import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.OptionalInt;
 import java.util.UUID;
 
 @Service
@@ -21,58 +29,93 @@ public class AuthService {
 
     private final EntityManager entityManager;
     private final ObjectMapper objectMapper;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
     private final JwtService jwtService;
-    private final com.uteq.api.repository.UserRepository userRepository;
+    private final PasswordMigrationService passwordMigrationService;
+    private final RefreshTokenStore refreshTokenStore;
+    private final RecaptchaService recaptchaService;
+    private final EmailService emailService;
 
-    @Transactional
-    public Map<String, Object> login(String username, String rawPassword) {
-        // Estrategia de Login Híbrida (BCrypt + Legacy Stored Procedure)
+    @Value("${password.history.size:5}")
+    private int passwordHistorySize;
 
-        String passwordForSp = rawPassword;
+    private static final String SQL_LOGIN_PROCEDURE =
+            "SELECT CAST(us_check_information_user_for_login(:in_username, :in_password) AS TEXT)";
 
-        try {
-            // 1. Obtener la contraseña almacenada para este usuario
-            com.uteq.api.entity.User user = userRepository.findByUsername(username).orElse(null);
-
-            if (user != null) {
-                String storedPassword = user.getPassword();
-
-                // 2. Verificar si es BCrypt (empieza con $2a$, $2b$, $2y$)
-                if (storedPassword != null && (storedPassword.startsWith("$2a$") ||
-                        storedPassword.startsWith("$2b$") ||
-                        storedPassword.startsWith("$2y$"))) {
-                    // 3. Verificar contraseña en Java
-                    if (passwordEncoder.matches(rawPassword.trim(), storedPassword.trim())) {
-                        // Contraseña correcta!
-                        // Truco: Pasamos el HASH al stored procedure para que la comparación (hash ==
-                        // hash) sea verdadera
-                        passwordForSp = storedPassword;
-                    } else {
-                        // Contraseña incorrecta
-                        Map<String, Object> error = new HashMap<>();
-                        error.put("codemsg", "PSWINC");
-                        error.put("datauser", null);
-                        return error;
-                    }
-                }
+    /**
+     * Consulta de login en un solo viaje: hash almacenado y resultado del SP.
+     *
+     * Para hashes BCrypt el SP recibe el propio hash (hash == hash es
+     * verdadero) y crea la sesión de forma optimista; login verifica después
+     * la contraseña en Java y, si no coincide, marca la transacción como
+     * rollback-only para deshacer la sesión. Para usuarios legacy o
+     * inexistentes el SP valida la contraseña plana como siempre.
+     */
+    private static final String SQL_LOGIN_LOOKUP =
+            "SELECT u.password, " +
+            "CAST(us_check_information_user_for_login(:in_username, " +
+            "CASE WHEN LEFT(u.password, 4) IN ('$2a$', '$2b$', '$2y$') THEN u.password ELSE :in_password END" +
+            ") AS TEXT) " +
+            "FROM (SELECT 1) AS one " +
+            "LEFT JOIN pl_user u ON u.username = :in_username";
+
+    /**
+     * Exige el veredicto reCAPTCHA antes de confirmar la transacción. Si la
+     * verificación falla, la excepción (RCPTER) aborta el commit y se revierte
+     * todo lo hecho por los stored procedures, de modo que la BD y el hash
+     * pueden trabajar mientras la verificación sigue en curso.
+     *
+     * Al terminar la transacción se suelta el veredicto: el token queda
+     * consumido solo si hubo commit y la acción marcó éxito (succeeded).
+     */
+    private void requireRecaptchaBeforeCommit(RecaptchaVerdictCache.Claim recaptcha) {
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                recaptchaService.awaitVerdict(recaptcha.verdict());
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                recaptcha.finish(status == STATUS_COMMITTED);
             }
+        });
+    }
+
+    @Transactional
+    public Map<String, Object> login(String username, String rawPassword, RecaptchaVerdictCache.Claim recaptcha) {
+        // Estrategia de Login Híbrida (BCrypt + Legacy Stored Procedure)
+        requireRecaptchaBeforeCommit(recaptcha);
 
-            // 4. Llamar al Stored Procedure (con rawPassword para legacy, o storedHash para
-            // BCrypt)
-            String sql = "SELECT CAST(us_check_information_user_for_login(:in_username, :in_password) AS TEXT)";
-            String jsonResult = (String) entityManager.createNativeQuery(sql)
+        try {
+            // 1. Un solo viaje a la BD: hash almacenado y resultado del stored procedure
+            // (que ya valida y crea la sesión)
+            Object[] lookup = (Object[]) entityManager.createNativeQuery(SQL_LOGIN_LOOKUP)
                     .setParameter("in_username", username)
-                    .setParameter("in_password", passwordForSp)
+                    .setParameter("in_password", rawPassword)
                     .getSingleResult();
 
-            JsonNode jsonNode = objectMapper.readTree(jsonResult);
-            String codemsg = jsonNode.get("codemsg").asText();
+            String storedPassword = (String) lookup[0];
+            String jsonResult = (String) lookup[1];
+
+            // 2. Si es BCrypt (empieza con $2a$, $2b$, $2y$) el SP aceptó el hash tal cual:
+            // la contraseña se verifica aquí en Java
+            if (isBCrypt(storedPassword)
+                    && !passwordHashingService.matches(rawPassword.trim(), storedPassword.trim())) {
+                // Contraseña incorrecta: se deshace la sesión creada por el SP
+                TransactionAspectSupport.currentTransactionStatus().setRollbackOnly();
+                return buildLoginError("PSWINC");
+            }
+
+            // 4. Parsear el resultado una sola vez
+            @SuppressWarnings("unchecked")
+            Map<String, Object> spResult = objectMapper.readValue(jsonResult, Map.class);
+            String codemsg = (String) spResult.get("codemsg");
 
             // Si el stored procedure devuelve éxito, procesamos
             if ("USRCCT".equals(codemsg)) {
                 @SuppressWarnings("unchecked")
-                Map<String, Object> userData = objectMapper.convertValue(jsonNode.get("datauser"), Map.class);
+                Map<String, Object> userData = (Map<String, Object>) spResult.get("datauser");
 
                 // Generar JWT token
                 UUID userId = UUID.fromString((String) userData.get("id_user"));
@@ -80,8 +123,19 @@ public class AuthService {
                 String usernameFinal = (String) userData.get("username");
                 UUID sessionId = UUID.fromString((String) userData.get("id_session"));
 
+                // Efectos fuera de la transacción: solo con reCAPTCHA confirmado
+                recaptchaService.awaitVerdict(recaptcha.verdict());
+                recaptcha.succeeded();
+
+                // Login exitoso: migrar en segundo plano si el hash es legacy o tiene otro strength
+                passwordMigrationService.migrateOnLogin(username, rawPassword, storedPassword);
+
                 String jwtToken = jwtService.generateToken(userId, email, usernameFinal, sessionId);
-                String refreshToken = jwtService.generateRefreshToken(userId, sessionId);
+                refreshTokenStore.register(sessionId);
+                String refreshToken = jwtService.generateRefreshToken(userId, email, usernameFinal, sessionId, 0);
+
+                // Notificación de login en el outbox, en la misma transacción que la sesión
+                emailService.sendLoginNotificationEmail(email, usernameFinal);
 
                 // Agregar tokens a la respuesta
                 userData.put("token", jwtToken);
@@ -94,58 +148,88 @@ public class AuthService {
                 return result;
             } else if ("PSWINC".equals(codemsg)) {
                 // Contraseña incorrecta
-                Map<String, Object> error = new HashMap<>();
-                error.put("codemsg", "PSWINC");
-                error.put("datauser", null);
-                return error;
+                return buildLoginError("PSWINC");
             } else {
                 // Otros errores (USNVLD, USRNEX, etc.)
                 Map<String, Object> result = new HashMap<>();
                 result.put("codemsg", codemsg);
-                result.put("datauser", jsonNode.has("datauser") && !jsonNode.get("datauser").isNull()
-                        ? objectMapper.convertValue(jsonNode.get("datauser"), Map.class)
-                        : null);
+                result.put("datauser", spResult.get("datauser"));
                 return result;
             }
+        } catch (ApiException e) {
+            // Errores de negocio (p. ej. SRVBSY por cola de hashing llena) llegan al cliente
+            throw e;
         } catch (Exception e) {
-            e.printStackTrace();
-            Map<String, Object> error = new HashMap<>();
-            error.put("codemsg", "ERRORE");
-            error.put("datauser", null);
-            return error;
+            log.error("Error en login para {}: ", username, e);
+            return buildLoginError("ERRORE");
         }
     }
 
+    /**
+     * Ejecuta el stored procedure de login y devuelve su resultado JSON como texto.
+     */
+    private String callLoginProcedure(String username, String password) {
+        return (String) entityManager.createNativeQuery(SQL_LOGIN_PROCEDURE)
+                .setParameter("in_username", username)
+                .setParameter("in_password", password)
+                .getSingleResult();
+    }
+
+    /**
+     * Helper para construir respuestas de error del login
+     */
+    private Map<String, Object> buildLoginError(String codemsg) {
+        Map<String, Object> error = new HashMap<>();
+        error.put("codemsg", codemsg);
+        error.put("datauser", null);
+        return error;
+    }
+
     @Transactional
-    public String register(String fullName, String email, String username, String password, Integer idCountry) {
+    public String register(String fullName, String email, String username, String password, Integer idCountry,
+            RecaptchaVerdictCache.Claim recaptcha) {
+        requireRecaptchaBeforeCommit(recaptcha);
         try {
             // Hashear la contraseña antes de enviar al stored procedure
-            String hashedPassword = passwordEncoder.encode(password.trim());
+            String hashedPassword = passwordHashingService.encode(password.trim());
 
             String sql = "SELECT us_register_new_user_data(:us_full_name, :us_email, :us_username, :us_password, :us_id_country)";
-            return (String) entityManager.createNativeQuery(sql)
+            String result = (String) entityManager.createNativeQuery(sql)
                     .setParameter("us_full_name", fullName)
                     .setParameter("us_email", email)
                     .setParameter("us_username", username)
                     .setParameter("us_password", hashedPassword)
                     .setParameter("us_id_country", idCountry)
                     .getSingleResult();
+
+            if ("USRREX".equals(result)) {
+                recaptcha.succeeded();
+                emailService.sendWelcomeEmail(email, fullName);
+            }
+            return result;
+        } catch (ApiException e) {
+            throw e;
         } catch (Exception e) {
-            System.err.println("Error in register function: " + e.getMessage());
-            e.printStackTrace();
+            log.error("Error en register para {}: ", username, e);
             return "ERROR: " + e.getMessage();
         }
     }
 
     @Transactional
-    public Map<String, Object> requestRecovery(String email) {
+    public Map<String, Object> requestRecovery(String email, RecaptchaVerdictCache.Claim recaptcha) {
+        requireRecaptchaBeforeCommit(recaptcha);
         String sql = "SELECT CAST(us_request_recovery_password_to_user_v2(:us_email) AS TEXT)";
         String jsonResult = (String) entityManager.createNativeQuery(sql)
                 .setParameter("us_email", email)
                 .getSingleResult();
 
         try {
-            return objectMapper.readValue(jsonResult, Map.class);
+            Map<String, Object> result = objectMapper.readValue(jsonResult, Map.class);
+            if ("CODGEN".equals(result.get("message"))) {
+                recaptcha.succeeded();
+                emailService.sendRecoveryCodeEmail(email, (String) result.get("code"), String.valueOf(result.get("request_id")));
+            }
+            return result;
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("message", "ERROR");
@@ -156,7 +240,8 @@ public class AuthService {
     }
 
     @Transactional
-    public Map<String, Object> verifyCode(String codeReq, String codeGen) {
+    public Map<String, Object> verifyCode(String codeReq, String codeGen, RecaptchaVerdictCache.Claim recaptcha) {
+        requireRecaptchaBeforeCommit(recaptcha);
         String sql = "SELECT CAST(us_check_recovery_code_v2(:code_req, :code_gen) AS TEXT)";
         String jsonResult = (String) entityManager.createNativeQuery(sql)
                 .setParameter("code_req", codeReq)
@@ -164,7 +249,12 @@ public class AuthService {
                 .getSingleResult();
 
         try {
-            return objectMapper.readValue(jsonResult, Map.class);
+            Map<String, Object> result = objectMapper.readValue(jsonResult, Map.class);
+            if ("CRQCOR".equals(result.get("message"))) {
+                recaptcha.succeeded();
+                emailService.sendCodeVerifiedEmail((String) result.get("code"), codeReq);
+            }
+            return result;
         } catch (Exception e) {
             Map<String, Object> error = new HashMap<>();
             error.put("message", "ERROR");
@@ -175,7 +265,8 @@ public class AuthService {
     }
 
     @Transactional
-    public Map<String, Object> resetPassword(String codeReq, String password) {
+    public Map<String, Object> resetPassword(String codeReq, String password, RecaptchaVerdictCache.Claim recaptcha) {
+        requireRecaptchaBeforeCommit(recaptcha);
         try {
             String rawPassword = password.trim();
             
@@ -236,35 +327,50 @@ public class AuthService {
             }
             
             // 4. VALIDACIÓN DE SEGURIDAD MEJORADA
-            // 4.1 Verificar contra la contraseña ACTUAL (Soporte Híbrido: BCrypt o Legacy)
-            if (isPasswordMatch(rawPassword, currentPasswordHashInDB, username)) {
+            // 4.1 Contraseña ACTUAL Legacy: solo puede verificarse vía Stored Procedure
+            if (!isBCrypt(currentPasswordHashInDB) && isPasswordMatch(rawPassword, currentPasswordHashInDB, username)) {
                 log.info("La nueva contraseña es igual a la actual (User: {})", username);
                 return buildErrorResponse("PSWEQS");
             }
 
-            // 4.2 Verificar contra el HISTORIAL (Últimas 5 contraseñas en pl_reset_pass)
+            // 4.2 Verificar contra el HISTORIAL (Últimas N contraseñas en pl_reset_pass)
             // Se asume que 'old_password' guarda el hash que tenía el usuario al momento del reset
             String sqlHistory = "SELECT old_password FROM pl_reset_pass " +
                                 "WHERE id_user = :userId AND old_password IS NOT NULL " +
-                                "ORDER BY date_registration DESC LIMIT 5";
+                                "ORDER BY date_registration DESC LIMIT :historySize";
             
             @SuppressWarnings("unchecked")
-            java.util.List<String> historyHashes = entityManager.createNativeQuery(sqlHistory)
+            List<String> historyHashes = entityManager.createNativeQuery(sqlHistory)
                     .setParameter("userId", userId)
+                    .setParameter("historySize", passwordHistorySize)
                     .getResultList();
 
+            // La contraseña actual (si es BCrypt) y el historial se evalúan en paralelo;
+            // el primer hash que coincida cancela el resto.
+            // (Si hay legacy en el historial muy antiguo, se ignora por seguridad para no bloquear falsos positivos)
+            List<String> candidateHashes = new ArrayList<>(historyHashes.size() + 1);
+            if (isBCrypt(currentPasswordHashInDB)) {
+                candidateHashes.add(currentPasswordHashInDB);
+            }
             for (String historyHash : historyHashes) {
-                // Para el historial, asumimos validación estándar BCrypt
-                // (Si hay legacy en el historial muy antiguo, se ignora por seguridad para no bloquear falsos positivos)
-                if (historyHash != null && isBCrypt(historyHash) && passwordEncoder.matches(rawPassword, historyHash)) {
+                if (isBCrypt(historyHash)) {
+                    candidateHashes.add(historyHash);
+                }
+            }
+
+            int matchIndex = passwordHashingService.indexOfMatch(rawPassword, candidateHashes);
+            if (matchIndex >= 0) {
+                if (matchIndex == 0 && isBCrypt(currentPasswordHashInDB)) {
+                    log.info("La nueva contraseña es igual a la actual (User: {})", username);
+                } else {
                     log.info("La nueva contraseña coincide con una del historial reciente.");
-                    return buildErrorResponse("PSWEQS");
                 }
+                return buildErrorResponse("PSWEQS");
             }
             
             // 5. Proceder al cambio
             // Hashear la nueva contraseña
-            String newHashedPassword = passwordEncoder.encode(rawPassword);
+            String newHashedPassword = passwordHashingService.encode(rawPassword);
             
             // Actualizar tabla reset_pass
             String updateResetPassSql = "UPDATE pl_reset_pass " +
@@ -285,6 +391,8 @@ public class AuthService {
                     .executeUpdate();
             
             log.info("Contraseña actualizada exitosamente para usuario: {}", userEmail);
+            emailService.sendPasswordUpdatedEmail(userEmail);
+            recaptcha.succeeded();
             
             Map<String, Object> response = new HashMap<>();
             response.put("codemsg", "PASUEX");
@@ -292,6 +400,8 @@ public class AuthService {
             response.put("email", userEmail);
             return response;
             
+        } catch (ApiException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Error crítico en resetPassword: ", e);
             return buildErrorResponse("ERRORE");
@@ -307,17 +417,14 @@ public class AuthService {
 
         // Estrategia 1: Es un hash BCrypt estándar
         if (isBCrypt(storedHash)) {
-            return passwordEncoder.matches(rawPassword, storedHash);
+            return passwordHashingService.matches(rawPassword, storedHash);
         }
 
         // Estrategia 2: Es Legacy (no empieza con $2...), verificamos usando el SP de Login
         // Si el SP retorna USRCCT usando la nueva password candidata, significa que ES IGUAL a la almacenada.
         try {
-            String sql = "SELECT CAST(us_check_information_user_for_login(:in_username, :in_password) AS TEXT)";
-            String jsonResult = (String) entityManager.createNativeQuery(sql)
-                    .setParameter("in_username", username)
-                    .setParameter("in_password", rawPassword) // Probamos con la password plana
-                    .getSingleResult();
+            // Probamos con la password plana
+            String jsonResult = callLoginProcedure(username, rawPassword);
             
             JsonNode jsonNode = objectMapper.readTree(jsonResult);
             String codemsg = jsonNode.has("codemsg") ? jsonNode.get("codemsg").asText() : "";
@@ -357,11 +464,12 @@ public class AuthService {
     public Map<String, Object> validateToken(String token) {
         Map<String, Object> response = new HashMap<>();
 
-        if (jwtService.validateToken(token) && !jwtService.isTokenExpired(token)) {
+        Optional<TokenClaims> claims = jwtService.verifyToken(token);
+        if (claims.isPresent() && claims.get().userId() != null) {
             response.put("valid", true);
-            response.put("userId", jwtService.extractUserId(token).toString());
-            response.put("email", jwtService.extractEmail(token));
-            response.put("username", jwtService.extractUsername(token));
+            response.put("userId", claims.get().userId().toString());
+            response.put("email", claims.get().email());
+            response.put("username", claims.get().username());
         } else {
             response.put("valid", false);
         }
@@ -370,29 +478,50 @@ public class AuthService {
     }
 
     /**
-     * Refresca un token JWT.
+     * Refresca un token JWT rotando el refresh token.
+     * 
+     * Cada refresh token es de un solo uso: se devuelve uno nuevo con la
+     * generación siguiente. Si se presenta uno ya rotado (robado o reenviado),
+     * se revoca la sesión completa y todos sus tokens dejan de ser válidos.
      * 
      * @param refreshToken Token de refresco
-     * @return Map con nuevo access token
+     * @return Map con nuevo access token y nuevo refresh token
      */
     public Map<String, Object> refreshAccessToken(String refreshToken) {
         Map<String, Object> response = new HashMap<>();
 
         try {
-            if (jwtService.validateToken(refreshToken) && !jwtService.isTokenExpired(refreshToken)) {
-                UUID userId = jwtService.extractUserId(refreshToken);
-                UUID sessionId = jwtService.extractSessionId(refreshToken);
-                String email = jwtService.extractEmail(refreshToken);
-                String username = jwtService.extractUsername(refreshToken);
-
-                String newAccessToken = jwtService.generateToken(userId, email, username, sessionId);
-
-                response.put("success", true);
-                response.put("token", newAccessToken);
-            } else {
+            Optional<TokenClaims> claims = jwtService.verifyToken(refreshToken)
+                    .filter(TokenClaims::isRefreshToken);
+            if (claims.isEmpty()) {
                 response.put("success", false);
                 response.put("message", "Invalid or expired refresh token");
+                return response;
+            }
+            TokenClaims refreshClaims = claims.get();
+
+            OptionalInt nextGeneration = refreshTokenStore.rotate(refreshClaims.sessionId(), refreshClaims.generation());
+            if (nextGeneration.isEmpty()) {
+                response.put("success", false);
+                response.put("message", "Refresh token reuse detected, session revoked");
+                return response;
             }
+
+            String newAccessToken = jwtService.generateToken(
+                    refreshClaims.userId(),
+                    refreshClaims.email(),
+                    refreshClaims.username(),
+                    refreshClaims.sessionId());
+            String newRefreshToken = jwtService.generateRefreshToken(
+                    refreshClaims.userId(),
+                    refreshClaims.email(),
+                    refreshClaims.username(),
+                    refreshClaims.sessionId(),
+                    nextGeneration.getAsInt());
+
+            response.put("success", true);
+            response.put("token", newAccessToken);
+            response.put("refreshToken", newRefreshToken);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", "Error refreshing token");
@@ -0,0 +1,75 @@
+package com.uteq.api.service;
+
+/**
+ * Circuit breaker mínimo para dependencias externas (reCAPTCHA, proveedores de
+ * email).
+ *
+ * - CLOSED: las llamadas pasan; tras failure-threshold fallos consecutivos se
+ * abre.
+ * - OPEN: las llamadas se rechazan sin tocar la red durante open-millis.
+ * - HALF_OPEN: pasada la espera se deja pasar una sola llamada de prueba; si
+ * tiene éxito se cierra, si falla se vuelve a abrir.
+ *
+ * Thread-safe; el estado se protege con el monitor del propio objeto (las
+ * secciones críticas son de unas pocas instrucciones).
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openMillis;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = failureThreshold;
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Indica si se puede intentar la llamada. En HALF_OPEN solo la primera
+     * llamada (la de prueba) recibe true.
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.CLOSED) {
+            return true;
+        }
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                return false;
+            }
+            state = State.HALF_OPEN;
+            probeInFlight = false;
+        }
+        if (probeInFlight) {
+            return false;
+        }
+        probeInFlight = true;
+        return true;
+    }
+
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.currentTimeMillis();
+            probeInFlight = false;
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
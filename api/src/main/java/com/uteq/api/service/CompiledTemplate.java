@@ -0,0 +1,88 @@
+package com.uteq.api.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plantilla de email precompilada: el HTML se parte una sola vez en segmentos
+ * literales y marcadores, con las posiciones resueltas al cargarla.
+ *
+ * render recorre los segmentos en una pasada y escribe en un StringBuilder
+ * dimensionado de antemano, en lugar de encadenar String.replace (una copia
+ * completa del cuerpo por cada marcador).
+ */
+public final class CompiledTemplate {
+
+    /**
+     * literals[i] va antes de placeholders[i]; el último literal cierra el cuerpo
+     */
+    private final String[] literals;
+    private final String[] placeholders;
+    private final int literalLength;
+
+    private CompiledTemplate(String[] literals, String[] placeholders, int literalLength) {
+        this.literals = literals;
+        this.placeholders = placeholders;
+        this.literalLength = literalLength;
+    }
+
+    /**
+     * Compila el HTML buscando los marcadores indicados. Si dos marcadores
+     * empiezan en la misma posición gana el más largo.
+     */
+    public static CompiledTemplate compile(String html, List<String> placeholderNames) {
+        List<String> literals = new ArrayList<>();
+        List<String> placeholders = new ArrayList<>();
+        int literalLength = 0;
+        int position = 0;
+
+        while (true) {
+            int nextIndex = -1;
+            String nextPlaceholder = null;
+            for (String name : placeholderNames) {
+                int index = html.indexOf(name, position);
+                if (index >= 0 && (nextIndex < 0 || index < nextIndex
+                        || (index == nextIndex && name.length() > nextPlaceholder.length()))) {
+                    nextIndex = index;
+                    nextPlaceholder = name;
+                }
+            }
+            if (nextPlaceholder == null) {
+                break;
+            }
+            String literal = html.substring(position, nextIndex);
+            literals.add(literal);
+            literalLength += literal.length();
+            placeholders.add(nextPlaceholder);
+            position = nextIndex + nextPlaceholder.length();
+        }
+
+        String tail = html.substring(position);
+        literals.add(tail);
+        literalLength += tail.length();
+
+        return new CompiledTemplate(literals.toArray(String[]::new), placeholders.toArray(String[]::new), literalLength);
+    }
+
+    /**
+     * Renderiza la plantilla. Un marcador sin valor se deja tal cual, igual
+     * que hacía String.replace cuando no se reemplazaba.
+     */
+    public String render(Map<String, String> values) {
+        int capacity = literalLength;
+        for (String placeholder : placeholders) {
+            String value = values.get(placeholder);
+            capacity += value != null ? value.length() : placeholder.length();
+        }
+
+        StringBuilder out = new StringBuilder(capacity);
+        for (int i = 0; i < placeholders.length; i++) {
+            out.append(literals[i]);
+            String value = values.get(placeholders[i]);
+            out.append(value != null ? value : placeholders[i]);
+        }
+        out.append(literals[literals.length - 1]);
+        return out.toString();
+    }
+}
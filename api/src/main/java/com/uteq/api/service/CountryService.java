@@ -1,40 +1,110 @@
 package com.uteq.api.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.uteq.api.entity.Country;
 import com.uteq.api.repository.CountryRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Países de referencia servidos desde memoria.
+ *
+ * pl_country casi no cambia y el formulario de registro la consulta
+ * constantemente, así que las lecturas van a un CountrySnapshot inmutable
+ * cargado al arrancar. Crear, editar o borrar un país reconstruye la copia y
+ * la reemplaza de forma atómica; las lecturas en curso siguen con la anterior.
+ * Cada refresh-seconds se recarga desde la BD para recoger cambios hechos por
+ * otras réplicas.
+ */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class CountryService {
     
     private final CountryRepository countryRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${country.snapshot.refresh-seconds:300}")
+    private long refreshSeconds;
+
+    private volatile CountrySnapshot snapshot;
+    private ScheduledExecutorService refresher;
+
+    @PostConstruct
+    void init() {
+        reload();
+        refresher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "country-snapshot-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        refresher.scheduleWithFixedDelay(() -> {
+            try {
+                reload();
+            } catch (Exception e) {
+                log.warn("No se pudo recargar la lista de países: {}", e.getMessage());
+            }
+        }, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
+    }
+
+    public CountrySnapshot snapshot() {
+        return snapshot;
+    }
     
     public List<Country> findAll() {
-        return countryRepository.findAll();
+        return snapshot.countries();
     }
     
     public Optional<Country> findById(Integer id) {
-        return countryRepository.findById(id);
+        return snapshot.findById(id).map(CountrySnapshot.Entry::country);
     }
     
     public Country save(Country country) {
-        return countryRepository.save(country);
+        Country saved = countryRepository.save(country);
+        reload();
+        return saved;
     }
     
     public void deleteById(Integer id) {
         countryRepository.deleteById(id);
+        reload();
     }
     
     public Optional<Country> findByCodeAlpha2(String codeAlpha2) {
-        return countryRepository.findByCodeAlpha2(codeAlpha2);
+        return snapshot.findByCodeAlpha2(codeAlpha2).map(CountrySnapshot.Entry::country);
     }
     
     public Optional<Country> findByCodeAlpha3(String codeAlpha3) {
-        return countryRepository.findByCodeAlpha3(codeAlpha3);
+        return snapshot.findByCodeAlpha3(codeAlpha3).map(CountrySnapshot.Entry::country);
+    }
+
+    /**
+     * Sincronizado para que una recarga lenta no pise con datos viejos a una
+     * posterior.
+     */
+    private synchronized void reload() {
+        CountrySnapshot next = CountrySnapshot.of(countryRepository.findAll(), objectMapper);
+        CountrySnapshot current = snapshot;
+        if (current == null || !current.etag().equals(next.etag())) {
+            snapshot = next;
+            log.info("Lista de países cargada: {} países", next.countries().size());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (refresher != null) {
+            refresher.shutdownNow();
+        }
     }
 }
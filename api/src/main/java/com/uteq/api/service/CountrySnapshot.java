@@ -0,0 +1,113 @@
+package com.uteq.api.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uteq.api.entity.Country;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Copia inmutable de pl_country con índices por id, alpha2 y alpha3.
+ *
+ * El JSON de cada país y el de la lista completa se serializan una sola vez al
+ * construir la copia, junto con su ETag fuerte (SHA-256 del cuerpo). Servir un
+ * país no toca la BD ni Jackson.
+ */
+public final class CountrySnapshot {
+
+    private final List<Country> countries;
+    private final Map<Integer, Entry> byId;
+    private final Map<String, Entry> byAlpha2;
+    private final Map<String, Entry> byAlpha3;
+    private final byte[] json;
+    private final String etag;
+
+    private CountrySnapshot(List<Country> countries, Map<Integer, Entry> byId, Map<String, Entry> byAlpha2,
+                            Map<String, Entry> byAlpha3, byte[] json) {
+        this.countries = countries;
+        this.byId = byId;
+        this.byAlpha2 = byAlpha2;
+        this.byAlpha3 = byAlpha3;
+        this.json = json;
+        this.etag = etagOf(json);
+    }
+
+    static CountrySnapshot of(List<Country> countries, ObjectMapper objectMapper) {
+        try {
+            List<Entry> entries = new ArrayList<>(countries.size());
+            for (Country country : countries) {
+                byte[] countryJson = objectMapper.writeValueAsBytes(country);
+                entries.add(new Entry(country, countryJson, etagOf(countryJson)));
+            }
+            return new CountrySnapshot(
+                    List.copyOf(countries),
+                    index(entries, entry -> entry.country().getIdCountry()),
+                    index(entries, entry -> normalize(entry.country().getCodeAlpha2())),
+                    index(entries, entry -> normalize(entry.country().getCodeAlpha3())),
+                    objectMapper.writeValueAsBytes(countries));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la lista de países", e);
+        }
+    }
+
+    public List<Country> countries() {
+        return countries;
+    }
+
+    /**
+     * JSON de la lista completa, tal como lo devuelve GET /api/countries
+     */
+    public byte[] json() {
+        return json;
+    }
+
+    public String etag() {
+        return etag;
+    }
+
+    public Optional<Entry> findById(Integer id) {
+        return Optional.ofNullable(id == null ? null : byId.get(id));
+    }
+
+    public Optional<Entry> findByCodeAlpha2(String code) {
+        return Optional.ofNullable(code == null ? null : byAlpha2.get(normalize(code)));
+    }
+
+    public Optional<Entry> findByCodeAlpha3(String code) {
+        return Optional.ofNullable(code == null ? null : byAlpha3.get(normalize(code)));
+    }
+
+    private static <K> Map<K, Entry> index(List<Entry> entries, Function<Entry, K> key) {
+        return entries.stream()
+                .filter(entry -> key.apply(entry) != null)
+                .collect(Collectors.toUnmodifiableMap(key, Function.identity(), (first, second) -> first));
+    }
+
+    private static String normalize(String code) {
+        return code == null ? null : code.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static String etagOf(byte[] body) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(body);
+            return "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"";
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+
+    /**
+     * Un país con su JSON y ETag precalculados.
+     */
+    public record Entry(Country country, byte[] json, String etag) {
+    }
+}
@@ -0,0 +1,53 @@
+package com.uteq.api.service;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Clave compacta para cachés en memoria: 128 bits de SHA-256 de uno o dos
+ * valores. Ocupa lo mismo sea cual sea el largo del valor y no guarda tokens
+ * en memoria.
+ *
+ * @param high Primeros 64 bits del hash
+ * @param low  Siguientes 64 bits del hash
+ */
+public record DigestKey(long high, long low) {
+
+    /**
+     * Digest de un valor (p. ej. un JWT).
+     */
+    public static DigestKey of(String value) {
+        MessageDigest digest = sha256();
+        digest.update(value.getBytes(StandardCharsets.UTF_8));
+        return from(digest);
+    }
+
+    /**
+     * Digest de dos valores separados por un byte 0, de modo que ("ab", "c") y
+     * ("a", "bc") no coinciden. El segundo puede ser null.
+     */
+    public static DigestKey of(String first, String second) {
+        MessageDigest digest = sha256();
+        digest.update(first.getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        if (second != null) {
+            digest.update(second.getBytes(StandardCharsets.UTF_8));
+        }
+        return from(digest);
+    }
+
+    private static DigestKey from(MessageDigest digest) {
+        ByteBuffer buffer = ByteBuffer.wrap(digest.digest());
+        return new DigestKey(buffer.getLong(), buffer.getLong());
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 no disponible", e);
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.uteq.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Outbox transaccional de emails.
+ *
+ * enqueue inserta el email ya renderizado en pl_email_outbox dentro de la
+ * transacción de la acción de autenticación: si la acción se revierte, el email
+ * no existe; si se confirma, el email se enviará aunque el proveedor esté lento
+ * o caído. La respuesta HTTP nunca espera al proveedor.
+ *
+ * La tabla se crea con api/db/002_pl_email_outbox.sql y
+ * api/db/003_email_outbox_coalesce.sql.
+ *
+ * Un pool de workers reclama filas con FOR UPDATE SKIP LOCKED (varios workers
+ * y varias réplicas sin pisarse), las envía y registra el estado final:
+ * - PENDING: listo para enviar en next_attempt_at.
+ * - SENDING: reclamado; si el worker muere, vuelve a reclamarse al vencer el
+ * lease (next_attempt_at).
+ * - SENT / FAILED: estado final; FAILED tras max-attempts intentos con backoff
+ * exponencial.
+ * - THROTTLED: notificación omitida por NotificationThrottle.
+ * Al llegar a un estado final se vacía html_body (puede llevar códigos de
+ * recuperación o enlaces de restablecimiento) y la fila se purga tras
+ * retention-days.
+ *
+ * enqueueCoalesced agrupa notificaciones repetidas (p. ej. varios logins
+ * seguidos) por clave: la primera sale de inmediato y las que llegan dentro
+ * de window-seconds se suman a una fila que sale al cerrarse la ventana, de
+ * modo que una ráfaga produce el aviso inmediato y un único email resumen.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailOutboxService {
+
+    private static final String SQL_INSERT =
+            "INSERT INTO pl_email_outbox (type_templ, recipient, subject, html_body) " +
+            "VALUES (:type, :recipient, :subject, :body)";
+
+    /**
+     * Sin email de la clave en la última ventana, el evento sale de inmediato;
+     * si lo hay, se programa una ventana después del último. Si ya hay una fila
+     * abierta, el evento se suma a ella. La ventana se cuenta desde el envío
+     * (o desde el alta si aún no salió).
+     */
+    private static final String SQL_UPSERT_COALESCED =
+            "INSERT INTO pl_email_outbox (type_templ, recipient, subject, html_body, coalesce_key, " +
+            "coalesced_events, next_attempt_at) " +
+            "SELECT :type, :recipient, :subject, :body, :key, :event, " +
+            "COALESCE(MAX(COALESCE(date_sent, date_register)) + (:window * INTERVAL '1 second'), NOW()) " +
+            "FROM pl_email_outbox WHERE coalesce_key = :key " +
+            "AND COALESCE(date_sent, date_register) > NOW() - (:window * INTERVAL '1 second') " +
+            "ON CONFLICT (coalesce_key) WHERE status = 'PENDING' AND attempts = 0 DO UPDATE SET " +
+            "coalesced_events = pl_email_outbox.coalesced_events || E'\\n' || EXCLUDED.coalesced_events, " +
+            "subject = EXCLUDED.subject, html_body = EXCLUDED.html_body";
+
+    private static final String SQL_CLAIM =
+            "UPDATE pl_email_outbox SET status = 'SENDING', attempts = attempts + 1, " +
+            "next_attempt_at = NOW() + (? * INTERVAL '1 second') " +
+            "WHERE id_outbox IN (" +
+            "SELECT id_outbox FROM pl_email_outbox " +
+            "WHERE status IN ('PENDING', 'SENDING') AND next_attempt_at <= NOW() " +
+            "ORDER BY next_attempt_at LIMIT ? FOR UPDATE SKIP LOCKED) " +
+            "RETURNING id_outbox, type_templ, recipient, subject, html_body, attempts, coalesce_key, coalesced_events";
+
+    private static final String SQL_MARK_SENT =
+            "UPDATE pl_email_outbox SET status = 'SENT', date_sent = NOW(), last_error = NULL, html_body = '' " +
+            "WHERE id_outbox = ?";
+
+    private static final String SQL_RESCHEDULE =
+            "UPDATE pl_email_outbox SET status = 'PENDING', last_error = ?, " +
+            "next_attempt_at = NOW() + (? * INTERVAL '1 millisecond') WHERE id_outbox = ?";
+
+    private static final String SQL_MARK_FAILED =
+            "UPDATE pl_email_outbox SET status = 'FAILED', last_error = ?, html_body = '' WHERE id_outbox = ?";
+
+    private static final String SQL_MARK_THROTTLED =
+            "UPDATE pl_email_outbox SET status = 'THROTTLED', html_body = '' WHERE id_outbox = ?";
+
+    /**
+     * Borra por lotes las filas finales más antiguas que retention-days, para
+     * no bloquear la tabla con un DELETE enorme.
+     */
+    private static final String SQL_PURGE =
+            "DELETE FROM pl_email_outbox WHERE id_outbox IN (" +
+            "SELECT id_outbox FROM pl_email_outbox " +
+            "WHERE status IN ('SENT', 'FAILED', 'THROTTLED') " +
+            "AND date_register < NOW() - (? * INTERVAL '1 day') LIMIT ?)";
+
+    private static final int PURGE_BATCH_SIZE = 1000;
+
+    /**
+     * Marca en html_body de un email agrupado; al enviarlo se reemplaza por la
+     * lista de eventos.
+     */
+    public static final String COALESCED_EVENTS = "{{COALESCED_EVENTS}}";
+
+    private static final int MAX_LISTED_EVENTS = 10;
+
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final MeterRegistry meterRegistry;
+    private final NotificationThrottle notificationThrottle;
+
+    @Autowired(required = false)
+    private EmailProvider emailProvider;
+
+    @Value("${mail.outbox.workers:4}")
+    private int workers;
+
+    @Value("${mail.outbox.batch-size:10}")
+    private int batchSize;
+
+    @Value("${mail.outbox.poll-interval-ms:1000}")
+    private long pollIntervalMs;
+
+    @Value("${mail.outbox.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${mail.outbox.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${mail.outbox.backoff-base-ms:5000}")
+    private long backoffBaseMs;
+
+    @Value("${mail.outbox.backoff-max-ms:3600000}")
+    private long backoffMaxMs;
+
+    @Value("${mail.outbox.retention-days:30}")
+    private long retentionDays;
+
+    @Value("${mail.outbox.purge-interval-seconds:3600}")
+    private long purgeIntervalSeconds;
+
+    private final Object signal = new Object();
+    private final List<Thread> workerThreads = new ArrayList<>();
+    private volatile boolean running;
+    private ScheduledExecutorService purger;
+
+    private Counter sentCounter;
+    private Counter retriedCounter;
+    private Counter failedCounter;
+    private Counter throttledCounter;
+    private Counter purgedCounter;
+    private Timer sendTimer;
+
+    @PostConstruct
+    void init() {
+        sentCounter = Counter.builder("mail.outbox.sent").register(meterRegistry);
+        retriedCounter = Counter.builder("mail.outbox.retried").register(meterRegistry);
+        failedCounter = Counter.builder("mail.outbox.failed").register(meterRegistry);
+        throttledCounter = Counter.builder("mail.outbox.throttled")
+                .description("Notificaciones omitidas por NotificationThrottle")
+                .register(meterRegistry);
+        purgedCounter = Counter.builder("mail.outbox.purged").register(meterRegistry);
+        sendTimer = Timer.builder("mail.outbox.send.duration")
+                .description("Tiempo de envío de un email por el proveedor")
+                .register(meterRegistry);
+
+        running = true;
+        for (int i = 1; i <= workers; i++) {
+            Thread thread = new Thread(this::workerLoop, "email-outbox-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            workerThreads.add(thread);
+        }
+
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "email-outbox-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::purgeSafely, purgeIntervalSeconds, purgeIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Encola un email en la transacción actual (o en una nueva si no hay).
+     * Los workers se despiertan al confirmarse la transacción.
+     *
+     * @param type      Tipo de plantilla (WELCM, RECVP, ...) o null
+     * @param recipient Destinatario
+     * @param subject   Asunto
+     * @param htmlBody  Cuerpo HTML ya renderizado
+     */
+    @Transactional
+    public void enqueue(String type, String recipient, String subject, String htmlBody) {
+        entityManager.createNativeQuery(SQL_INSERT)
+                .setParameter("type", type)
+                .setParameter("recipient", recipient)
+                .setParameter("subject", subject)
+                .setParameter("body", htmlBody)
+                .executeUpdate();
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeUp();
+            }
+        });
+    }
+
+    /**
+     * Encola una notificación agrupable. Si no hubo email de la misma clave en
+     * la última ventana, sale de inmediato. Si lo hubo, se crea una fila que
+     * saldrá una ventana después del último, o el evento se suma a la que ya
+     * está abierta y el cuerpo se reemplaza por el más reciente.
+     *
+     * @param key           Clave de agrupación (p. ej. tipo + destinatario)
+     * @param htmlBody      Cuerpo HTML con la marca COALESCED_EVENTS
+     * @param event         Texto del evento (p. ej. fecha y hora del login)
+     * @param windowSeconds Separación mínima entre emails de la misma clave
+     */
+    @Transactional
+    public void enqueueCoalesced(String type, String recipient, String subject, String htmlBody,
+                                 String key, String event, long windowSeconds) {
+        entityManager.createNativeQuery(SQL_UPSERT_COALESCED)
+                .setParameter("type", type)
+                .setParameter("recipient", recipient)
+                .setParameter("subject", subject)
+                .setParameter("body", htmlBody)
+                .setParameter("key", key)
+                .setParameter("event", event)
+                .setParameter("window", windowSeconds)
+                .executeUpdate();
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                wakeUp();
+            }
+        });
+    }
+
+    private void wakeUp() {
+        synchronized (signal) {
+            signal.notifyAll();
+        }
+    }
+
+    private void workerLoop() {
+        while (running) {
+            try {
+                List<OutboxEmail> batch = claim();
+                if (batch.isEmpty()) {
+                    synchronized (signal) {
+                        signal.wait(pollIntervalMs);
+                    }
+                    continue;
+                }
+                batch.forEach(this::deliver);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Error en el worker de outbox de emails: {}", e.getMessage());
+                try {
+                    Thread.sleep(pollIntervalMs);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private List<OutboxEmail> claim() {
+        return jdbcTemplate.query(SQL_CLAIM, (rs, rowNum) -> new OutboxEmail(
+                rs.getLong("id_outbox"),
+                rs.getString("type_templ"),
+                rs.getString("recipient"),
+                rs.getString("subject"),
+                rs.getString("html_body"),
+                rs.getInt("attempts"),
+                rs.getString("coalesce_key"),
+                rs.getString("coalesced_events")), leaseSeconds, batchSize);
+    }
+
+    private void deliver(OutboxEmail email) {
+        if (emailProvider == null) {
+            jdbcTemplate.update(SQL_MARK_FAILED, "Email provider not configured", email.id());
+            failedCounter.increment();
+            return;
+        }
+        String htmlBody = email.htmlBody();
+        if (email.coalesceKey() != null) {
+            // El token se cobra una vez por email, no por reintento
+            if (email.attempts() == 1 && !notificationThrottle.tryAcquire(email.coalesceKey())) {
+                jdbcTemplate.update(SQL_MARK_THROTTLED, email.id());
+                throttledCounter.increment();
+                log.info("Notificación {} ({}) omitida por límite de envíos al destinatario", email.id(), email.type());
+                return;
+            }
+            htmlBody = htmlBody.replace(COALESCED_EVENTS, formatEvents(email.coalescedEvents()));
+        }
+        long start = System.nanoTime();
+        try {
+            emailProvider.sendEmail(email.recipient(), email.subject(), htmlBody);
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            jdbcTemplate.update(SQL_MARK_SENT, email.id());
+            sentCounter.increment();
+        } catch (Exception e) {
+            sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            String error = String.valueOf(e.getMessage());
+            if (email.attempts() >= maxAttempts) {
+                jdbcTemplate.update(SQL_MARK_FAILED, error, email.id());
+                failedCounter.increment();
+                log.error("Email {} ({}) descartado tras {} intentos: {}",
+                        email.id(), email.type(), email.attempts(), error);
+            } else {
+                jdbcTemplate.update(SQL_RESCHEDULE, error, backoffMillis(email.attempts()), email.id());
+                retriedCounter.increment();
+                log.warn("Email {} ({}) falló en el intento {}, se reintentará: {}",
+                        email.id(), email.type(), email.attempts(), error);
+            }
+        }
+    }
+
+    private void purgeSafely() {
+        try {
+            purge();
+        } catch (Exception e) {
+            log.warn("No se pudieron purgar los emails enviados del outbox: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Elimina los emails en estado final más antiguos que retention-days. El
+     * cuerpo ya se vació al llegar a ese estado; aquí se borra la fila.
+     */
+    private void purge() {
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(SQL_PURGE, retentionDays, PURGE_BATCH_SIZE);
+            purgedCounter.increment(deleted);
+        } while (deleted == PURGE_BATCH_SIZE && running);
+    }
+
+    /**
+     * Los eventos más recientes primero, como mucho MAX_LISTED_EVENTS.
+     */
+    private static String formatEvents(String events) {
+        if (events == null) {
+            return "";
+        }
+        List<String> lines = new ArrayList<>(List.of(events.split("\n")));
+        Collections.reverse(lines);
+        if (lines.size() <= MAX_LISTED_EVENTS) {
+            return String.join("<br>", lines);
+        }
+        return String.join("<br>", lines.subList(0, MAX_LISTED_EVENTS))
+                + "<br>y " + (lines.size() - MAX_LISTED_EVENTS) + " más";
+    }
+
+    /**
+     * Backoff exponencial: base, 2*base, 4*base... hasta backoff-max-ms.
+     */
+    private long backoffMillis(int attempts) {
+        int exponent = Math.min(attempts - 1, 30);
+        return Math.min(backoffBaseMs << exponent, backoffMaxMs);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        workerThreads.forEach(Thread::interrupt);
+        purger.shutdownNow();
+    }
+
+    private record OutboxEmail(long id, String type, String recipient, String subject, String htmlBody, int attempts,
+                               String coalesceKey, String coalescedEvents) {
+    }
+}
@@ -2,23 +2,39 @@ package com.uteq.api.service;
 
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
 
-import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import com.uteq.api.entity.TemplateEmail;
-import com.uteq.api.repository.TemplateEmailRepository;
 
 import lombok.RequiredArgsConstructor;
-
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Emails transaccionales de autenticación.
+ *
+ * Los métodos send* renderizan la plantilla precompilada (EmailTemplateCache)
+ * en una sola pasada y encolan el email en el outbox dentro de la transacción
+ * actual; el envío real lo hacen los workers de EmailOutboxService.
+ *
+ * Una plantilla inexistente no debe revertir la acción de autenticación: se
+ * registra y el email se omite.
+ *
+ * La primera notificación de login sale de inmediato; las siguientes del
+ * mismo destinatario dentro de mail.login-notification.coalesce-window-seconds
+ * se agrupan en un resumen (0 = una por login).
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class EmailService {
 
-        private final TemplateEmailRepository templateEmailRepository;
+        private final EmailTemplateCache emailTemplateCache;
+        private final EmailOutboxService emailOutboxService;
 
-        @Autowired(required = false)
-        private EmailProvider emailProvider;
+        private static final DateTimeFormatter LOGIN_DATE_FORMAT = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
 
         @org.springframework.beans.factory.annotation.Value("${app.frontend.verify-code-url}")
         private String verifyCodeUrl;
@@ -26,69 +42,85 @@ public class EmailService {
         @org.springframework.beans.factory.annotation.Value("${app.frontend.reset-password-url}")
         private String resetPasswordUrl;
 
-        public void sendWelcomeEmail(String to, String fullName) throws Exception {
-                TemplateEmail template = templateEmailRepository.findByTypeTempl("WELCM")
-                                .orElseThrow(() -> new RuntimeException("Template not found"));
+        @org.springframework.beans.factory.annotation.Value("${mail.login-notification.coalesce-window-seconds:300}")
+        private long loginCoalesceWindowSeconds;
+
+        public void sendWelcomeEmail(String to, String fullName) {
+                Optional<CompiledTemplate> template = findTemplate("WELCM");
+                if (template.isEmpty()) {
+                        return;
+                }
 
-                String content = template.getTemplateEmail()
-                                .replace("{{FULL_NAME}}", fullName);
+                String content = template.get().render(Map.of("{{FULL_NAME}}", fullName));
 
-                sendHtmlEmail(to, "Bienvenido a UTEQ Platform", content);
+                emailOutboxService.enqueue("WELCM", to, "Bienvenido a UTEQ Platform", content);
         }
 
-        public void sendRecoveryCodeEmail(String to, String code, String requestId) throws Exception {
-                TemplateEmail template = templateEmailRepository.findByTypeTempl("RECVP")
-                                .orElseThrow(() -> new RuntimeException("Template not found"));
+        public void sendRecoveryCodeEmail(String to, String code, String requestId) {
+                Optional<CompiledTemplate> template = findTemplate("RECVP");
+                if (template.isEmpty()) {
+                        return;
+                }
 
                 String verificationLink = verifyCodeUrl + "?requestId=" + requestId;
 
-                String content = template.getTemplateEmail()
-                                .replace("CODE_RECOVERY", code)
-                                .replace("CODE_GEN_ID", requestId)
-                                .replace("{{VERIFY_URL}}", verificationLink);
+                String content = template.get().render(Map.of(
+                                "CODE_RECOVERY", code,
+                                "CODE_GEN_ID", requestId,
+                                "{{VERIFY_URL}}", verificationLink));
 
-                sendHtmlEmail(to, "Recuperación de contraseña - Código de verificación", content);
+                emailOutboxService.enqueue("RECVP", to, "Recuperación de contraseña - Código de verificación", content);
         }
 
-        public void sendCodeVerifiedEmail(String to, String requestId) throws Exception {
-                TemplateEmail template = templateEmailRepository.findByTypeTempl("RCPS2")
-                                .orElseThrow(() -> new RuntimeException("Template not found"));
+        public void sendCodeVerifiedEmail(String to, String requestId) {
+                Optional<CompiledTemplate> template = findTemplate("RCPS2");
+                if (template.isEmpty()) {
+                        return;
+                }
 
                 String resetLink = resetPasswordUrl + "?requestId=" + requestId;
 
-                String content = template.getTemplateEmail()
-                                .replace("CODE_GEN_ID", requestId)
-                                .replace("{{RESET_URL}}", resetLink);
+                String content = template.get().render(Map.of(
+                                "CODE_GEN_ID", requestId,
+                                "{{RESET_URL}}", resetLink));
 
-                sendHtmlEmail(to, "Recuperación de contraseña - Código verificado", content);
+                emailOutboxService.enqueue("RCPS2", to, "Recuperación de contraseña - Código verificado", content);
         }
 
-        public void sendPasswordUpdatedEmail(String to) throws Exception {
-                TemplateEmail template = templateEmailRepository.findByTypeTempl("RCPS3")
-                                .orElseThrow(() -> new RuntimeException("Template not found"));
+        public void sendPasswordUpdatedEmail(String to) {
+                Optional<CompiledTemplate> template = findTemplate("RCPS3");
+                if (template.isEmpty()) {
+                        return;
+                }
 
-                sendHtmlEmail(to, "Contraseña actualizada exitosamente", template.getTemplateEmail());
+                emailOutboxService.enqueue("RCPS3", to, "Contraseña actualizada exitosamente", template.get().render(Map.of()));
         }
 
-        public void sendLoginNotificationEmail(String to, String username) throws Exception {
-                TemplateEmail template = templateEmailRepository.findByTypeTempl("LOGIN")
-                                .orElseThrow(() -> new RuntimeException("Template not found"));
+        public void sendLoginNotificationEmail(String to, String username) {
+                Optional<CompiledTemplate> template = findTemplate("LOGIN");
+                if (template.isEmpty()) {
+                        return;
+                }
 
-                OffsetDateTime now = OffsetDateTime.now();
-                DateTimeFormatter formatter = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
-                String formattedDate = now.format(formatter);
+                String formattedDate = OffsetDateTime.now().format(LOGIN_DATE_FORMAT);
 
-                String content = template.getTemplateEmail()
-                                .replace("FECHA_HORA_LOGIN", formattedDate);
+                if (loginCoalesceWindowSeconds <= 0) {
+                        String content = template.get().render(Map.of("FECHA_HORA_LOGIN", formattedDate));
+                        emailOutboxService.enqueue("LOGIN", to, "Inicio de sesión exitoso", content);
+                        return;
+                }
 
-                sendHtmlEmail(to, "Inicio de sesión exitoso", content);
+                // Los logins seguidos del mismo destinatario salen en un solo email con todas las fechas
+                String content = template.get().render(Map.of("FECHA_HORA_LOGIN", EmailOutboxService.COALESCED_EVENTS));
+                emailOutboxService.enqueueCoalesced("LOGIN", to, "Inicio de sesión exitoso", content,
+                                "LOGIN:" + to.trim().toLowerCase(Locale.ROOT), formattedDate, loginCoalesceWindowSeconds);
         }
 
-        private void sendHtmlEmail(String to, String subject, String htmlContent) throws Exception {
-                if (emailProvider == null) {
-                        System.err.println("Email provider not configured - email not sent to: " + to);
-                        return;
+        private Optional<CompiledTemplate> findTemplate(String type) {
+                Optional<CompiledTemplate> template = emailTemplateCache.get(type);
+                if (template.isEmpty()) {
+                        log.error("Plantilla de email {} no encontrada, email omitido", type);
                 }
-                emailProvider.sendEmail(to, subject, htmlContent);
+                return template;
         }
 }
@@ -0,0 +1,86 @@
+package com.uteq.api.service;
+
+import com.uteq.api.entity.TemplateEmail;
+import com.uteq.api.repository.TemplateEmailRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caché de plantillas de email precompiladas, por type_templ.
+ *
+ * Cada plantilla se lee de pl_template_email y se compila una vez; los envíos
+ * siguientes no consultan la BD. TemplateEmailService invalida la caché al
+ * crear, actualizar o borrar plantillas. Las entradas además vencen tras
+ * ttl-seconds, para que los cambios hechos desde otra réplica también lleguen.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class EmailTemplateCache {
+
+    /**
+     * Marcadores que reconocen las plantillas de pl_template_email
+     */
+    public static final List<String> PLACEHOLDERS = List.of(
+            "{{FULL_NAME}}",
+            "{{VERIFY_URL}}",
+            "{{RESET_URL}}",
+            "CODE_RECOVERY",
+            "CODE_GEN_ID",
+            "FECHA_HORA_LOGIN");
+
+    private final TemplateEmailRepository templateEmailRepository;
+
+    @Value("${mail.template-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final ConcurrentHashMap<String, CachedTemplate> templates = new ConcurrentHashMap<>();
+
+    /**
+     * Se incrementa en cada invalidación: una carga iniciada antes no se guarda
+     */
+    private final AtomicLong version = new AtomicLong();
+
+    /**
+     * Devuelve la plantilla compilada del tipo indicado, o vacío si no existe.
+     * Las plantillas inexistentes no se cachean.
+     */
+    public Optional<CompiledTemplate> get(String type) {
+        long now = System.currentTimeMillis();
+        CachedTemplate cached = templates.get(type);
+        if (cached != null && cached.expiresAtMillis() > now) {
+            return Optional.of(cached.template());
+        }
+
+        long loadVersion = version.get();
+        Optional<TemplateEmail> template = templateEmailRepository.findByTypeTempl(type);
+        if (template.isEmpty() || template.get().getTemplateEmail() == null) {
+            templates.remove(type);
+            return Optional.empty();
+        }
+        CompiledTemplate compiled = CompiledTemplate.compile(template.get().getTemplateEmail(), PLACEHOLDERS);
+        if (version.get() == loadVersion) {
+            templates.put(type, new CachedTemplate(compiled, now + ttlSeconds * 1000));
+        }
+        return Optional.of(compiled);
+    }
+
+    /**
+     * Descarta todas las plantillas compiladas; se recargan en el próximo envío.
+     */
+    public void invalidateAll() {
+        version.incrementAndGet();
+        templates.clear();
+        log.info("Caché de plantillas de email invalidada");
+    }
+
+    private record CachedTemplate(CompiledTemplate template, long expiresAtMillis) {
+    }
+}
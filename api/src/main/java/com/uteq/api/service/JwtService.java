@@ -2,17 +2,28 @@ package com.uteq.api.service;
 
 import com.uteq.api.config.JwtConfig;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
+import java.security.Key;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Servicio para manejo de JSON Web Tokens (JWT).
@@ -21,15 +32,110 @@ import java.util.UUID;
  */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class JwtService {
 
     private final JwtConfig jwtConfig;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final SessionRevocationService sessionRevocationService;
 
     /**
-     * Genera la clave secreta para firmar los JWT.
+     * Claves y parser construidos una sola vez y compartidos entre hilos.
+     * Se reemplazan juntos, de modo que ninguna petición ve una clave nueva con
+     * un parser viejo.
      */
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtConfig.getSecret().getBytes(StandardCharsets.UTF_8));
+    private final AtomicReference<SigningMaterial> signingMaterial = new AtomicReference<>();
+
+    @PostConstruct
+    void init() {
+        SecretKey hmacKey = hmacKey(jwtConfig.getSecret());
+        String algorithm = jwtConfig.getAlgorithm();
+
+        if ("HS256".equals(algorithm)) {
+            signingMaterial.set(SigningMaterial.of(hmacKey, null, null, true));
+            return;
+        }
+        if (!"ES256".equals(algorithm) && !"EdDSA".equals(algorithm)) {
+            throw new IllegalStateException("jwt.algorithm debe ser HS256, ES256 o EdDSA: " + algorithm);
+        }
+        if (jwtConfig.getSigningPrivateKey().isBlank() || jwtConfig.getSigningPublicKey().isBlank()) {
+            // Una clave efímera haría que cada réplica y cada reinicio invaliden los tokens de las demás
+            throw new IllegalStateException(
+                    "jwt.algorithm=" + algorithm + " requiere jwt.signing.private-key y jwt.signing.public-key");
+        }
+
+        JwtSigningKey current = JwtSigningKey.fromPem(
+                algorithm, jwtConfig.getSigningPrivateKey(), jwtConfig.getSigningPublicKey());
+        JwtSigningKey previous = jwtConfig.getPreviousSigningPublicKey().isBlank()
+                ? null
+                : JwtSigningKey.fromPem(algorithm, null, jwtConfig.getPreviousSigningPublicKey());
+
+        signingMaterial.set(SigningMaterial.of(hmacKey, current, previous, jwtConfig.isAcceptLegacyHs256()));
+        log.info("JWT firmados con {} (kid {})", algorithm, current.kid());
+        if (jwtConfig.isAcceptLegacyHs256()) {
+            log.warn("jwt.accept-legacy-hs256 activo: se aceptan tokens HS256 sin kid. "
+                    + "Desactívelo cuando pase jwt.refresh-expiration desde el cambio de algoritmo");
+        }
+    }
+
+    /**
+     * Rota el secreto HMAC. Los tokens firmados con el secreto anterior
+     * dejan de ser válidos.
+     * 
+     * @param secret Nuevo secreto HMAC
+     */
+    public void rotateSecret(String secret) {
+        signingMaterial.updateAndGet(material ->
+                SigningMaterial.of(hmacKey(secret), material.current(), material.previous(), material.acceptHmac()));
+        verifiedTokenCache.clear();
+    }
+
+    /**
+     * Rota la clave asimétrica de firma. La clave actual pasa a ser la anterior
+     * (solo verificación), de modo que los tokens ya emitidos siguen siendo
+     * válidos y ambas se publican en el JWKS hasta la siguiente rotación.
+     * 
+     * @param newKey Nueva clave de firma (con clave privada)
+     */
+    public void rotateSigningKey(JwtSigningKey newKey) {
+        signingMaterial.updateAndGet(material -> SigningMaterial.of(
+                material.hmacKey(),
+                newKey,
+                material.current() != null ? material.current().verificationOnly() : null,
+                material.acceptHmac()));
+    }
+
+    /**
+     * Devuelve el JWKS público (claves actual y anterior) para que otros
+     * servicios verifiquen los tokens localmente.
+     */
+    public Map<String, Object> getJwks() {
+        return signingMaterial.get().jwks();
+    }
+
+    /**
+     * Firma el token con la clave asimétrica actual (con su kid) o, en modo
+     * HS256, con el secreto compartido.
+     */
+    private String sign(JwtBuilder builder) {
+        SigningMaterial material = signingMaterial.get();
+        if (material.current() != null) {
+            return builder.header().keyId(material.current().kid()).and()
+                    .signWith(material.current().privateKey())
+                    .compact();
+        }
+        return builder.signWith(material.hmacKey()).compact();
+    }
+
+    /**
+     * Devuelve el parser (inmutable y thread-safe) que verifica con las claves actuales.
+     */
+    private JwtParser getParser() {
+        return signingMaterial.get().parser();
+    }
+
+    private static SecretKey hmacKey(String secret) {
+        return Keys.hmacShaKeyFor(secret.getBytes(StandardCharsets.UTF_8));
     }
 
     /**
@@ -51,128 +157,142 @@ public class JwtService {
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtConfig.getExpiration());
 
-        return Jwts.builder()
+        return sign(Jwts.builder()
                 .claims(claims)
                 .subject(userId.toString())
                 .issuedAt(now)
-                .expiration(expiryDate)
-                .signWith(getSigningKey())
-                .compact();
+                .expiration(expiryDate));
     }
 
     /**
      * Genera un token de refresco para extender la sesión.
      * 
-     * @param userId    ID del usuario
-     * @param sessionId ID de la sesión
+     * Lleva email y username para poder emitir el nuevo access token sin
+     * consultar la BD, y la generación para detectar la reutilización de un
+     * refresh token ya rotado.
+     * 
+     * @param userId     ID del usuario
+     * @param email      Email del usuario
+     * @param username   Nombre de usuario
+     * @param sessionId  ID de la sesión
+     * @param generation Generación del token dentro de la sesión
      * @return Refresh token generado
      */
-    public String generateRefreshToken(UUID userId, UUID sessionId) {
+    public String generateRefreshToken(UUID userId, String email, String username, UUID sessionId, int generation) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("userId", userId.toString());
+        claims.put("email", email);
+        claims.put("username", username);
         claims.put("sessionId", sessionId.toString());
         claims.put("type", "refresh");
+        claims.put("gen", generation);
 
         Date now = new Date();
         Date expiryDate = new Date(now.getTime() + jwtConfig.getRefreshExpiration());
 
-        return Jwts.builder()
+        return sign(Jwts.builder()
                 .claims(claims)
                 .subject(userId.toString())
                 .issuedAt(now)
-                .expiration(expiryDate)
-                .signWith(getSigningKey())
-                .compact();
+                .expiration(expiryDate));
     }
 
     /**
-     * Valida un token JWT.
+     * Verifica la firma y la expiración del token y decodifica sus claims en
+     * una sola pasada. Es la única operación de lectura de tokens: cada
+     * petición paga como mucho una verificación de firma, y ninguna si el token ya
+     * está en la caché de tokens verificados.
      * 
-     * @param token Token a validar
-     * @return true si el token es válido, false en caso contrario
+     * @param token Token JWT
+     * @return Claims verificados, o vacío si el token es inválido, expiró o su
+     *         sesión fue revocada
      */
-    public boolean validateToken(String token) {
+    public Optional<TokenClaims> verifyToken(String token) {
+        if (token == null || token.isBlank()) {
+            return Optional.empty();
+        }
+        Optional<TokenClaims> cached = verifiedTokenCache.get(token);
+        if (cached.isPresent()) {
+            return cached.filter(this::isSessionActive);
+        }
         try {
-            Jwts.parser()
-                    .verifyWith(getSigningKey())
-                    .build()
-                    .parseSignedClaims(token);
-            return true;
+            Claims claims = getParser().parseSignedClaims(token).getPayload();
+            TokenClaims tokenClaims = toTokenClaims(claims);
+            if (!isSessionActive(tokenClaims)) {
+                return Optional.empty();
+            }
+            verifiedTokenCache.put(token, tokenClaims);
+            return Optional.of(tokenClaims);
         } catch (Exception e) {
-            return false;
+            return Optional.empty();
         }
     }
 
     /**
-     * Extrae el ID de usuario del token.
-     * 
-     * @param token Token JWT
-     * @return ID del usuario
+     * Un token deja de ser válido cuando su sesión se cierra o se elimina.
      */
-    public UUID extractUserId(String token) {
-        Claims claims = extractAllClaims(token);
-        return UUID.fromString(claims.get("userId", String.class));
+    private boolean isSessionActive(TokenClaims claims) {
+        return !sessionRevocationService.isRevoked(claims.sessionId());
     }
 
-    /**
-     * Extrae el email del token.
-     * 
-     * @param token Token JWT
-     * @return Email del usuario
-     */
-    public String extractEmail(String token) {
-        Claims claims = extractAllClaims(token);
-        return claims.get("email", String.class);
+    private static TokenClaims toTokenClaims(Claims claims) {
+        return new TokenClaims(
+                parseUuid(claims.get("userId", String.class)),
+                parseUuid(claims.get("sessionId", String.class)),
+                claims.get("email", String.class),
+                claims.get("username", String.class),
+                claims.get("type", String.class),
+                claims.getIssuedAt() != null ? claims.getIssuedAt().toInstant() : null,
+                claims.getExpiration() != null ? claims.getExpiration().toInstant() : null,
+                claims.get("gen") instanceof Number gen ? gen.intValue() : 0);
     }
 
-    /**
-     * Extrae el username del token.
-     * 
-     * @param token Token JWT
-     * @return Username del usuario
-     */
-    public String extractUsername(String token) {
-        Claims claims = extractAllClaims(token);
-        return claims.get("username", String.class);
+    private static UUID parseUuid(String value) {
+        return value != null ? UUID.fromString(value) : null;
     }
 
     /**
-     * Extrae el ID de sesión del token.
+     * Claves de firma, parser y JWKS asociados, inmutables.
      * 
-     * @param token Token JWT
-     * @return ID de la sesión
+     * El parser elige la clave por el kid del header: con kid se usa la clave
+     * asimétrica actual o la anterior; sin kid, el secreto HMAC solo si
+     * acceptHmac (modo HS256 o jwt.accept-legacy-hs256). Sin clave para el
+     * token, el parser lo rechaza.
      */
-    public UUID extractSessionId(String token) {
-        Claims claims = extractAllClaims(token);
-        return UUID.fromString(claims.get("sessionId", String.class));
-    }
+    private record SigningMaterial(
+            SecretKey hmacKey,
+            JwtSigningKey current,
+            JwtSigningKey previous,
+            boolean acceptHmac,
+            JwtParser parser,
+            Map<String, Object> jwks) {
 
-    /**
-     * Verifica si el token ha expirado.
-     * 
-     * @param token Token JWT
-     * @return true si el token está expirado
-     */
-    public boolean isTokenExpired(String token) {
-        try {
-            Claims claims = extractAllClaims(token);
-            return claims.getExpiration().before(new Date());
-        } catch (Exception e) {
-            return true;
-        }
-    }
+        static SigningMaterial of(SecretKey hmacKey, JwtSigningKey current, JwtSigningKey previous,
+                boolean acceptHmac) {
+            Map<String, Key> verificationKeys = new HashMap<>();
+            List<Map<String, Object>> publicJwks = new ArrayList<>();
+            for (JwtSigningKey signingKey : new JwtSigningKey[] { current, previous }) {
+                if (signingKey != null) {
+                    verificationKeys.put(signingKey.kid(), signingKey.publicKey());
+                    publicJwks.add(signingKey.jwk());
+                }
+            }
 
-    /**
-     * Extrae todos los claims del token.
-     * 
-     * @param token Token JWT
-     * @return Claims del token
-     */
-    private Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+            JwtParser parser = Jwts.parser()
+                    .keyLocator(new LocatorAdapter<Key>() {
+                        @Override
+                        protected Key locate(JwsHeader header) {
+                            String kid = header.getKeyId();
+                            if (kid == null) {
+                                return acceptHmac ? hmacKey : null;
+                            }
+                            return verificationKeys.get(kid);
+                        }
+                    })
+                    .build();
+
+            return new SigningMaterial(hmacKey, current, previous, acceptHmac, parser,
+                    Map.of("keys", List.copyOf(publicJwks)));
+        }
     }
 }
@@ -0,0 +1,94 @@
+package com.uteq.api.service;
+
+import io.jsonwebtoken.security.Jwks;
+import io.jsonwebtoken.security.PublicJwk;
+
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.ECGenParameterSpec;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Clave asimétrica de firma de JWT (ES256 o EdDSA) identificada por su kid.
+ *
+ * @param kid        Identificador de la clave (thumbprint JWK)
+ * @param privateKey Clave privada; null para claves anteriores que solo verifican
+ * @param publicKey  Clave pública publicada en el JWKS
+ * @param jwk        Representación JWK pública, lista para serializar
+ */
+public record JwtSigningKey(String kid, PrivateKey privateKey, PublicKey publicKey, Map<String, Object> jwk) {
+
+    /**
+     * Construye la clave a partir de un par de claves.
+     */
+    public static JwtSigningKey of(String algorithm, PrivateKey privateKey, PublicKey publicKey) {
+        PublicJwk<PublicKey> publicJwk = Jwks.builder()
+                .key(publicKey)
+                .algorithm(algorithm)
+                .publicKeyUse("sig")
+                .idFromThumbprint()
+                .build();
+        return new JwtSigningKey(publicJwk.getId(), privateKey, publicKey, new LinkedHashMap<>(publicJwk));
+    }
+
+    /**
+     * Carga la clave desde PEM (PKCS#8 para la privada, X.509 para la pública).
+     * La privada puede omitirse para claves que solo verifican.
+     */
+    public static JwtSigningKey fromPem(String algorithm, String privateKeyPem, String publicKeyPem) {
+        try {
+            KeyFactory keyFactory = KeyFactory.getInstance(keyAlgorithm(algorithm));
+            PrivateKey privateKey = privateKeyPem == null || privateKeyPem.isBlank()
+                    ? null
+                    : keyFactory.generatePrivate(new PKCS8EncodedKeySpec(decodePem(privateKeyPem)));
+            PublicKey publicKey = keyFactory.generatePublic(new X509EncodedKeySpec(decodePem(publicKeyPem)));
+            return of(algorithm, privateKey, publicKey);
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new IllegalStateException("Clave de firma JWT inválida para " + algorithm, e);
+        }
+    }
+
+    /**
+     * Genera un par de claves nuevo (útil en desarrollo o para rotación).
+     */
+    public static JwtSigningKey generate(String algorithm) {
+        try {
+            KeyPairGenerator generator = KeyPairGenerator.getInstance(keyAlgorithm(algorithm));
+            if ("ES256".equals(algorithm)) {
+                generator.initialize(new ECGenParameterSpec("secp256r1"));
+            }
+            KeyPair keyPair = generator.generateKeyPair();
+            return of(algorithm, keyPair.getPrivate(), keyPair.getPublic());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("No se pudo generar una clave " + algorithm, e);
+        }
+    }
+
+    /**
+     * Copia de la clave que solo sirve para verificar (se descarta la privada).
+     */
+    public JwtSigningKey verificationOnly() {
+        return new JwtSigningKey(kid, null, publicKey, jwk);
+    }
+
+    private static String keyAlgorithm(String algorithm) {
+        return switch (algorithm) {
+            case "ES256" -> "EC";
+            case "EdDSA" -> "Ed25519";
+            default -> throw new IllegalArgumentException("Algoritmo JWT no soportado: " + algorithm);
+        };
+    }
+
+    private static byte[] decodePem(String pem) {
+        String base64 = pem.replaceAll("-----(BEGIN|END) [A-Z ]+-----", "").replaceAll("\\s", "");
+        return Base64.getDecoder().decode(base64);
+    }
+}
@@ -0,0 +1,109 @@
+package com.uteq.api.service;
+
+import com.uteq.api.dto.KeysetPage;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.jpa.AvailableHints;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Lectura de listados grandes sin cargarlos enteros en memoria.
+ *
+ * - list: todas las filas en una sola consulta, para tablas pequeñas.
+ * - page: paginación por keyset sobre la clave primaria (WHERE clave > after
+ * ORDER BY clave LIMIT n), que usa el índice de la PK sin importar la
+ * profundidad de la página, a diferencia de OFFSET.
+ * - stream: recorre la tabla con un cursor JDBC de solo avance y fetch-size
+ * filas por viaje; el contexto de persistencia se limpia cada fetch-size
+ * filas, así que la memoria no crece con la tabla.
+ *
+ * En ambos casos las relaciones ManyToOne (usuario, país) se traen en la misma
+ * consulta con JOIN FETCH en vez de una consulta por fila.
+ */
+@Service
+@RequiredArgsConstructor
+public class KeysetReader {
+
+    private final EntityManager entityManager;
+
+    @Value("${api.keyset.default-limit:100}")
+    private int defaultLimit;
+
+    @Value("${api.keyset.max-limit:1000}")
+    private int maxLimit;
+
+    @Value("${api.keyset.fetch-size:500}")
+    private int fetchSize;
+
+    /**
+     * @param fetchJoins JOIN FETCH sobre el alias e (puede ser vacío)
+     * @param key        Atributo de la clave primaria
+     * @param after      Cursor de la página anterior o null para la primera
+     * @param limit      Tamaño pedido; null usa default-limit, máximo max-limit
+     */
+    @Transactional(readOnly = true)
+    public <T, K> KeysetPage<T> page(Class<T> type, String fetchJoins, String key, K after, Integer limit,
+                                     Function<T, K> keyOf) {
+        int size = limit == null || limit <= 0 ? defaultLimit : Math.min(limit, maxLimit);
+
+        // Una fila de más indica si existe otra página
+        List<T> rows = query(type, fetchJoins, key, after)
+                .setMaxResults(size + 1)
+                .getResultList();
+        if (rows.size() <= size) {
+            return new KeysetPage<>(rows, null);
+        }
+        List<T> items = rows.subList(0, size);
+        return new KeysetPage<>(items, String.valueOf(keyOf.apply(items.get(size - 1))));
+    }
+
+    /**
+     * Todas las filas ordenadas por clave, para los listados sin paginar.
+     */
+    @Transactional(readOnly = true)
+    public <T> List<T> list(Class<T> type, String fetchJoins, String key) {
+        return query(type, fetchJoins, key, null).getResultList();
+    }
+
+    /**
+     * Entrega al consumer todas las filas con clave mayor que after, en orden.
+     * Debe consumirse dentro de la llamada: las entidades quedan separadas del
+     * contexto de persistencia al poco de entregarse.
+     */
+    @Transactional(readOnly = true)
+    public <T, K> void stream(Class<T> type, String fetchJoins, String key, K after, Consumer<T> consumer) {
+        try (Stream<T> rows = query(type, fetchJoins, key, after)
+                .setHint(AvailableHints.HINT_FETCH_SIZE, fetchSize)
+                .setHint(AvailableHints.HINT_READ_ONLY, true)
+                .getResultStream()) {
+            int count = 0;
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                consumer.accept(iterator.next());
+                if (++count % fetchSize == 0) {
+                    entityManager.clear();
+                }
+            }
+        }
+    }
+
+    private <T, K> TypedQuery<T> query(Class<T> type, String fetchJoins, String key, K after) {
+        String jpql = "SELECT e FROM " + type.getSimpleName() + " e " + fetchJoins
+                + (after != null ? " WHERE e." + key + " > :after" : "")
+                + " ORDER BY e." + key;
+        TypedQuery<T> query = entityManager.createQuery(jpql, type);
+        if (after != null) {
+            query.setParameter("after", after);
+        }
+        return query;
+    }
+}
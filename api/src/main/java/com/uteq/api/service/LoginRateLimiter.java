@@ -0,0 +1,246 @@
+package com.uteq.api.service;
+
+import com.uteq.api.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limitador de intentos de login fallidos por usuario y por IP.
+ *
+ * Se consulta en AuthController.login antes de cualquier trabajo de BD, hash o
+ * reCAPTCHA, de modo que un ataque de fuerza bruta se descarta sin costo.
+ *
+ * - Ventana deslizante aproximada (ventana actual + anterior ponderada).
+ * - Un contador por clave en un ConcurrentHashMap; cada contador se bloquea por
+ * separado, así que claves distintas no compiten entre sí.
+ * - Memoria acotada: las claves inactivas por más de dos ventanas se eliminan
+ * periódicamente, y al llegar a max-keys se descartan las de actividad más
+ * antigua; una avalancha de claves nuevas nunca deja de rastrear fallos.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LoginRateLimiter {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${auth.login.rate-limit.window-seconds:60}")
+    private long windowSeconds;
+
+    @Value("${auth.login.rate-limit.max-failures-per-username:10}")
+    private int maxFailuresPerUsername;
+
+    @Value("${auth.login.rate-limit.max-failures-per-ip:50}")
+    private int maxFailuresPerIp;
+
+    @Value("${auth.login.rate-limit.max-keys:100000}")
+    private int maxKeys;
+
+    private final ConcurrentHashMap<String, FailureWindow> windows = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private Clock clock = Clock.systemUTC();
+    private ScheduledExecutorService evictor;
+    private Counter rejectedCounter;
+    private Counter evictedCounter;
+
+    @PostConstruct
+    void init() {
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "login-rate-limiter-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, windowSeconds, windowSeconds, TimeUnit.SECONDS);
+
+        Gauge.builder("auth.login.rate-limit.keys", windows, ConcurrentHashMap::size)
+                .description("Claves (usuario/IP) con intentos fallidos recientes")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("auth.login.rate-limit.rejected")
+                .description("Logins rechazados por exceso de intentos fallidos")
+                .register(meterRegistry);
+        evictedCounter = Counter.builder("auth.login.rate-limit.evicted")
+                .description("Claves descartadas antes de tiempo por superar max-keys")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Verifica que ni el usuario ni la IP hayan superado el límite de fallos.
+     *
+     * @throws TooManyRequestsException (LGNLIM) si alguno lo superó
+     */
+    public void checkAllowed(String username, String clientIp) {
+        long now = clock.millis();
+        if (isBlocked(usernameKey(username), maxFailuresPerUsername, now)
+                || isBlocked(ipKey(clientIp), maxFailuresPerIp, now)) {
+            rejectedCounter.increment();
+            throw new TooManyRequestsException("LGNLIM",
+                    "Demasiados intentos fallidos, intente más tarde", windowSeconds);
+        }
+    }
+
+    /**
+     * Registra un intento fallido para el usuario y la IP.
+     */
+    public void recordFailure(String username, String clientIp) {
+        long now = clock.millis();
+        increment(usernameKey(username), now);
+        increment(ipKey(clientIp), now);
+    }
+
+    /**
+     * Un login exitoso limpia los fallos del usuario (no los de la IP).
+     */
+    public void recordSuccess(String username) {
+        String key = usernameKey(username);
+        if (key != null) {
+            windows.remove(key);
+        }
+    }
+
+    private boolean isBlocked(String key, int limit, long now) {
+        if (key == null) {
+            return false;
+        }
+        FailureWindow window = windows.get(key);
+        return window != null && window.estimate(now, windowMillis()) >= limit;
+    }
+
+    private void increment(String key, long now) {
+        if (key == null) {
+            return;
+        }
+        FailureWindow window = windows.get(key);
+        if (window == null) {
+            if (windows.size() >= maxKeys) {
+                evictOldest(now);
+            }
+            window = windows.computeIfAbsent(key, k -> new FailureWindow(now));
+        }
+        window.increment(now, windowMillis());
+    }
+
+    private void evictIdle() {
+        evictIdle(clock.millis());
+    }
+
+    private void evictIdle(long now) {
+        long idleMillis = 2 * windowMillis();
+        windows.entrySet().removeIf(entry -> entry.getValue().isIdle(now, idleMillis));
+    }
+
+    /**
+     * Libera un 10% de max-keys: primero las claves inactivas y, si no basta,
+     * las de último fallo más antiguo. Solo un hilo lo hace a la vez; el resto
+     * inserta sin esperar y el mapa puede pasarse de max-keys por poco.
+     */
+    private void evictOldest(long now) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            if (windows.size() < maxKeys) {
+                return;
+            }
+            evictIdle(now);
+            int excess = windows.size() - (maxKeys - Math.max(1, maxKeys / 10));
+            if (excess <= 0) {
+                return;
+            }
+            // Se copia lastSeen antes de ordenar: puede cambiar durante el ordenamiento
+            List<KeyActivity> oldest = windows.entrySet().stream()
+                    .map(entry -> new KeyActivity(entry.getKey(), entry.getValue().lastSeen()))
+                    .sorted(Comparator.comparingLong(KeyActivity::lastSeen))
+                    .limit(excess)
+                    .toList();
+            oldest.forEach(activity -> windows.remove(activity.key()));
+            evictedCounter.increment(oldest.size());
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private long windowMillis() {
+        return windowSeconds * 1000;
+    }
+
+    private static String usernameKey(String username) {
+        return username == null || username.isBlank() ? null : "u:" + username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String ipKey(String clientIp) {
+        return clientIp == null || clientIp.isBlank() ? null : "ip:" + clientIp;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        evictor.shutdownNow();
+    }
+
+    /**
+     * Contador de fallos con ventana deslizante aproximada:
+     * estimado = anterior * (fracción restante de la ventana anterior) + actual.
+     */
+    private static final class FailureWindow {
+
+        private long windowStart;
+        private int previous;
+        private int current;
+        private volatile long lastSeen;
+
+        FailureWindow(long now) {
+            this.windowStart = now;
+            this.lastSeen = now;
+        }
+
+        synchronized void increment(long now, long windowMillis) {
+            roll(now, windowMillis);
+            current++;
+            lastSeen = now;
+        }
+
+        synchronized double estimate(long now, long windowMillis) {
+            roll(now, windowMillis);
+            double previousWeight = 1.0 - (double) (now - windowStart) / windowMillis;
+            return previous * previousWeight + current;
+        }
+
+        boolean isIdle(long now, long idleMillis) {
+            return now - lastSeen > idleMillis;
+        }
+
+        long lastSeen() {
+            return lastSeen;
+        }
+
+        private void roll(long now, long windowMillis) {
+            long elapsed = now - windowStart;
+            if (elapsed < windowMillis) {
+                return;
+            }
+            previous = elapsed < 2 * windowMillis ? current : 0;
+            current = 0;
+            windowStart += (elapsed / windowMillis) * windowMillis;
+        }
+    }
+
+    private record KeyActivity(String key, long lastSeen) {
+    }
+}
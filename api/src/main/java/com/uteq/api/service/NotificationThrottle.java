@@ -0,0 +1,119 @@
+package com.uteq.api.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket por destinatario para emails de notificación (p. ej. el
+ * resumen de inicios de sesión).
+ *
+ * - Cada clave admite una ráfaga de capacity envíos y recupera un token cada
+ * refill-seconds.
+ * - Un bucket lleno no aporta nada, así que el evictor lo elimina; la memoria
+ * depende solo de los destinatarios limitados en ese momento.
+ * - Memoria acotada: con max-keys claves rastreadas, las nuevas no se limitan.
+ */
+@Service
+@RequiredArgsConstructor
+public class NotificationThrottle {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mail.notification-throttle.capacity:3}")
+    private int capacity;
+
+    @Value("${mail.notification-throttle.refill-seconds:1200}")
+    private long refillSeconds;
+
+    @Value("${mail.notification-throttle.max-keys:100000}")
+    private int maxKeys;
+
+    private final ConcurrentHashMap<String, TokenBucket> buckets = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService evictor;
+
+    @PostConstruct
+    void init() {
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-throttle-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictFull, refillSeconds, refillSeconds, TimeUnit.SECONDS);
+
+        Gauge.builder("mail.notification-throttle.keys", buckets, ConcurrentHashMap::size)
+                .description("Destinatarios con notificaciones recientes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Consume un token de la clave.
+     *
+     * @return false si la clave agotó su ráfaga y la notificación debe omitirse
+     */
+    public boolean tryAcquire(String key) {
+        long now = System.currentTimeMillis();
+        TokenBucket bucket = buckets.get(key);
+        if (bucket == null) {
+            if (buckets.size() >= maxKeys) {
+                return true;
+            }
+            bucket = buckets.computeIfAbsent(key, k -> new TokenBucket(capacity, now));
+        }
+        return bucket.tryConsume(now, capacity, refillMillis());
+    }
+
+    private void evictFull() {
+        long now = System.currentTimeMillis();
+        buckets.entrySet().removeIf(entry -> entry.getValue().isFull(now, capacity, refillMillis()));
+    }
+
+    private long refillMillis() {
+        return refillSeconds * 1000;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        evictor.shutdownNow();
+    }
+
+    private static final class TokenBucket {
+
+        private double tokens;
+        private long updatedAt;
+
+        TokenBucket(int capacity, long now) {
+            this.tokens = capacity;
+            this.updatedAt = now;
+        }
+
+        synchronized boolean tryConsume(long now, int capacity, long refillMillis) {
+            refill(now, capacity, refillMillis);
+            if (tokens < 1) {
+                return false;
+            }
+            tokens--;
+            return true;
+        }
+
+        synchronized boolean isFull(long now, int capacity, long refillMillis) {
+            refill(now, capacity, refillMillis);
+            return tokens >= capacity;
+        }
+
+        private void refill(long now, int capacity, long refillMillis) {
+            tokens = Math.min(capacity, tokens + (double) (now - updatedAt) / refillMillis);
+            updatedAt = now;
+        }
+    }
+}
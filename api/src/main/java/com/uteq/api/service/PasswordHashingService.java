@@ -0,0 +1,214 @@
+package com.uteq.api.service;
+
+import com.uteq.api.exception.ServiceUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Servicio que ejecuta el hashing y la verificación de contraseñas en un pool
+ * acotado de hilos, fuera de los hilos de Tomcat.
+ *
+ * - El pool tiene tantos hilos como núcleos (o los configurados), de modo que
+ * BCrypt nunca ocupa más CPU que la disponible.
+ * - La cola de admisión es acotada: cuando está llena la petición falla de
+ * inmediato con SRVBSY (503 + Retry-After) en lugar de acumular latencia.
+ * - La espera por el resultado también es acotada (await-timeout-ms): un hash
+ * que no termina a tiempo se cancela y la petición falla con SRVBSY.
+ * - Expone profundidad de cola, tiempo de espera y tiempo de hash como métricas.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${password.hashing.threads:0}")
+    private int threads;
+
+    @Value("${password.hashing.queue-capacity:64}")
+    private int queueCapacity;
+
+    @Value("${password.hashing.await-timeout-ms:5000}")
+    private long awaitTimeoutMs;
+
+    private ThreadPoolExecutor executor;
+    private Timer waitTimer;
+    private Timer matchesTimer;
+    private Timer encodeTimer;
+    private Counter rejectedCounter;
+    private Counter timedOutCounter;
+
+    @PostConstruct
+    void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+
+        executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+
+        Gauge.builder("password.hashing.queue.depth", executor, e -> e.getQueue().size())
+                .description("Tareas de hashing esperando en la cola de admisión")
+                .register(meterRegistry);
+        Gauge.builder("password.hashing.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Hilos ejecutando BCrypt en este momento")
+                .register(meterRegistry);
+        waitTimer = Timer.builder("password.hashing.wait")
+                .description("Tiempo en cola antes de empezar el hash")
+                .register(meterRegistry);
+        matchesTimer = Timer.builder("password.hashing.duration")
+                .tag("operation", "matches")
+                .register(meterRegistry);
+        encodeTimer = Timer.builder("password.hashing.duration")
+                .tag("operation", "encode")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("password.hashing.rejected")
+                .description("Peticiones rechazadas por cola llena")
+                .register(meterRegistry);
+        timedOutCounter = Counter.builder("password.hashing.timed-out")
+                .description("Peticiones que superaron await-timeout-ms esperando el hash")
+                .register(meterRegistry);
+
+        log.info("Pool de hashing de contraseñas: {} hilos, cola de {}", poolSize, queueCapacity);
+    }
+
+    /**
+     * Verifica una contraseña plana contra un hash almacenado.
+     *
+     * @throws ServiceUnavailableException si la cola de hashing está llena
+     */
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        return await(submit(() -> passwordEncoder.matches(rawPassword, encodedPassword), matchesTimer));
+    }
+
+    /**
+     * Verifica una contraseña plana contra varios hashes en paralelo. En cuanto
+     * uno coincide se cancela el trabajo restante, por lo que la latencia queda
+     * cerca de un solo BCrypt sin importar cuántos hashes haya.
+     *
+     * @return índice del primer hash que coincide, o -1 si ninguno coincide
+     * @throws ServiceUnavailableException si la cola de hashing está llena
+     */
+    public int indexOfMatch(CharSequence rawPassword, List<String> encodedPasswords) {
+        if (encodedPasswords.isEmpty()) {
+            return -1;
+        }
+
+        CompletableFuture<Integer> firstMatch = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(encodedPasswords.size());
+        List<Future<Boolean>> tasks = new ArrayList<>(encodedPasswords.size());
+
+        try {
+            for (int i = 0; i < encodedPasswords.size(); i++) {
+                int index = i;
+                String encodedPassword = encodedPasswords.get(i);
+                tasks.add(submit(() -> {
+                    try {
+                        // Si otro hash ya coincidió no vale la pena gastar CPU
+                        boolean match = !firstMatch.isDone() && passwordEncoder.matches(rawPassword, encodedPassword);
+                        if (match) {
+                            firstMatch.complete(index);
+                        } else if (pending.decrementAndGet() == 0) {
+                            firstMatch.complete(-1);
+                        }
+                        return match;
+                    } catch (RuntimeException e) {
+                        firstMatch.completeExceptionally(e);
+                        throw e;
+                    }
+                }, matchesTimer));
+            }
+            return await(firstMatch);
+        } finally {
+            tasks.forEach(task -> task.cancel(true));
+            executor.purge();
+        }
+    }
+
+    /**
+     * Codifica una contraseña plana con el PasswordEncoder configurado.
+     *
+     * @throws ServiceUnavailableException si la cola de hashing está llena
+     */
+    public String encode(CharSequence rawPassword) {
+        return await(submit(() -> passwordEncoder.encode(rawPassword), encodeTimer));
+    }
+
+    /**
+     * Encola una tarea registrando su tiempo de espera y de ejecución.
+     */
+    private <T> Future<T> submit(Callable<T> task, Timer durationTimer) {
+        long enqueuedAt = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                waitTimer.record(startedAt - enqueuedAt, TimeUnit.NANOSECONDS);
+                try {
+                    return task.call();
+                } finally {
+                    durationTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            throw new ServiceUnavailableException("SRVBSY", "Servidor ocupado, intente nuevamente");
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timedOutCounter.increment();
+            throw new ServiceUnavailableException("SRVBSY", "Servidor ocupado, intente nuevamente");
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido esperando el hash de la contraseña", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException("Error calculando el hash de la contraseña", e.getCause());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
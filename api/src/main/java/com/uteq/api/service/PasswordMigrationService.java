@@ -0,0 +1,135 @@
+package com.uteq.api.service;
+
+import com.uteq.api.config.BCryptCalibration;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Migra de forma transparente las contraseñas almacenadas al esquema actual.
+ *
+ * - Legacy (no BCrypt): tras un login exitoso la contraseña plana ya fue
+ * validada por us_check_information_user_for_login.
+ * - BCrypt con un strength menor al configurado: se sube. Nunca se baja
+ * mientras el hash siga dentro de [min-strength, max-strength], así dos nodos
+ * con strengths distintos no re-codifican el mismo hash en cada login.
+ * - BCrypt por encima de max-strength: se baja para acotar la latencia.
+ *
+ * En ambos casos la contraseña se vuelve a codificar con el PasswordEncoder
+ * configurado y se guarda en segundo plano. La migración es de mejor
+ * esfuerzo: si la cola está llena o falla, se reintenta en el siguiente
+ * login del usuario.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordMigrationService {
+
+    private static final String SQL_UPDATE_PASSWORD =
+            "UPDATE pl_user SET password = :newPass " +
+            "WHERE username = :username AND password = :oldPass";
+
+    private static final String SQL_COUNT_LEGACY_USERS =
+            "SELECT COUNT(*) FROM pl_user " +
+            "WHERE password IS NULL OR LEFT(password, 4) NOT IN ('$2a$', '$2b$', '$2y$')";
+
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final PasswordHashingService passwordHashingService;
+    private final BCryptCalibration bcryptCalibration;
+
+    @Value("${password.legacy.rehash-on-login:true}")
+    private boolean rehashLegacyOnLogin;
+
+    @Value("${password.bcrypt.rehash-on-login:true}")
+    private boolean rehashStrengthOnLogin;
+
+    @Value("${password.bcrypt.max-strength:14}")
+    private int maxStrength;
+
+    @Value("${password.legacy.queue-capacity:500}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor executor;
+
+    @PostConstruct
+    void init() {
+        executor = new ThreadPoolExecutor(
+                1,
+                1,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-migration");
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.DiscardPolicy());
+    }
+
+    /**
+     * Programa, si hace falta, la migración de la contraseña de un usuario que
+     * acaba de iniciar sesión. No bloquea la petición de login.
+     *
+     * @param username    Usuario autenticado
+     * @param rawPassword Contraseña plana ya validada
+     * @param storedHash  Valor almacenado al momento del login
+     */
+    public void migrateOnLogin(String username, String rawPassword, String storedHash) {
+        if (storedHash == null || !needsMigration(storedHash)) {
+            return;
+        }
+        executor.execute(() -> migrate(username, rawPassword.trim(), storedHash));
+    }
+
+    private boolean needsMigration(String storedHash) {
+        int storedStrength = BCryptCalibration.strengthOf(storedHash);
+        if (storedStrength < 0) {
+            return rehashLegacyOnLogin;
+        }
+        return rehashStrengthOnLogin
+                && (storedStrength < bcryptCalibration.strength() || storedStrength > maxStrength);
+    }
+
+    private void migrate(String username, String rawPassword, String oldHash) {
+        try {
+            String newHashedPassword = passwordHashingService.encode(rawPassword);
+
+            // Solo se actualiza si la contraseña no cambió mientras tanto (p. ej. por un reset)
+            Integer updated = transactionTemplate.execute(status -> entityManager
+                    .createNativeQuery(SQL_UPDATE_PASSWORD)
+                    .setParameter("newPass", newHashedPassword)
+                    .setParameter("username", username)
+                    .setParameter("oldPass", oldHash)
+                    .executeUpdate());
+
+            if (updated != null && updated > 0) {
+                log.info("Contraseña migrada a BCrypt strength {} (User: {})", bcryptCalibration.strength(), username);
+            }
+        } catch (Exception e) {
+            log.warn("No se pudo migrar la contraseña (User: {}): {}", username, e.getMessage());
+        }
+    }
+
+    /**
+     * Cuenta los usuarios que todavía tienen una contraseña legacy.
+     */
+    public long countLegacyUsers() {
+        return ((Number) entityManager.createNativeQuery(SQL_COUNT_LEGACY_USERS).getSingleResult()).longValue();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
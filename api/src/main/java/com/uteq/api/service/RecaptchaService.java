@@ -1,44 +1,292 @@
 package com.uteq.api.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uteq.api.exception.AuthenticationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.FormBody;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.springframework.util.LinkedMultiValueMap;
-import org.springframework.util.MultiValueMap;
 
-import java.util.Map;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
+/**
+ * Verificación de tokens reCAPTCHA contra recaptcha.verify.url.
+ *
+ * - Un solo cliente HTTP compartido con pool de conexiones keep-alive: sin
+ * handshake TLS por petición.
+ * - Timeouts estrictos de conexión, lectura y total de la llamada; esperar el
+ * veredicto también está acotado (await-timeout-ms).
+ * - Circuit breaker: tras varios errores seguidos (timeout, 5xx, red) deja de
+ * llamar al proveedor durante un tiempo. Mientras tanto, y ante cualquier
+ * error del proveedor, el resultado es recaptcha.fail-open (true = dejar
+ * pasar, false = rechazar).
+ * - Métricas: recaptcha.verify.duration{outcome} y estado del circuito.
+ * - Las llamadas son asíncronas (dispatcher de OkHttp), así que la
+ * verificación puede solaparse con el trabajo de BD de la petición.
+ */
 @Service
 @RequiredArgsConstructor
+@Slf4j
 public class RecaptchaService {
-    
+
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final RecaptchaVerdictCache verdictCache;
+
     @Value("${recaptcha.secret.key}")
     private String secretKey;
-    
+
     @Value("${recaptcha.verify.url}")
     private String verifyUrl;
-    
-    public boolean verifyRecaptcha(String token) {
-        RestTemplate restTemplate = new RestTemplate();
-        
-        MultiValueMap<String, String> params = new LinkedMultiValueMap<>();
-        params.add("secret", secretKey);
-        params.add("response", token);
-        
-        try {
-            Map<String, Object> response = restTemplate.postForObject(
-                verifyUrl, 
-                params, 
-                Map.class
-            );
-            
-            if (response != null && response.containsKey("success")) {
-                return (Boolean) response.get("success");
+
+    @Value("${recaptcha.http.connect-timeout-ms:1000}")
+    private long connectTimeoutMs;
+
+    @Value("${recaptcha.http.read-timeout-ms:2000}")
+    private long readTimeoutMs;
+
+    @Value("${recaptcha.http.call-timeout-ms:3000}")
+    private long callTimeoutMs;
+
+    @Value("${recaptcha.http.max-idle-connections:20}")
+    private int maxIdleConnections;
+
+    @Value("${recaptcha.http.max-concurrent-requests:64}")
+    private int maxConcurrentRequests;
+
+    /**
+     * Espera máxima del veredicto en awaitVerdict; al agotarse se aplica
+     * recaptcha.fail-open. Debe superar call-timeout-ms.
+     */
+    @Value("${recaptcha.await-timeout-ms:3500}")
+    private long awaitTimeoutMs;
+
+    @Value("${recaptcha.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${recaptcha.circuit.open-seconds:30}")
+    private long openSeconds;
+
+    @Value("${recaptcha.fail-open:false}")
+    private boolean failOpen;
+
+    @Value("${recaptcha.overlap:true}")
+    private boolean overlap;
+
+    private OkHttpClient client;
+    private CircuitBreaker circuitBreaker;
+    private Timer successTimer;
+    private Timer rejectedTimer;
+    private Timer errorTimer;
+    private Counter shortCircuitedCounter;
+    private Counter awaitTimedOutCounter;
+
+    @PostConstruct
+    void init() {
+        // Por defecto OkHttp limita a 5 llamadas asíncronas por host
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxConcurrentRequests);
+        dispatcher.setMaxRequestsPerHost(maxConcurrentRequests);
+
+        client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxIdleConnections, 5, TimeUnit.MINUTES))
+                .connectTimeout(connectTimeoutMs, TimeUnit.MILLISECONDS)
+                .readTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .writeTimeout(readTimeoutMs, TimeUnit.MILLISECONDS)
+                .callTimeout(callTimeoutMs, TimeUnit.MILLISECONDS)
+                .retryOnConnectionFailure(false)
+                .build();
+        circuitBreaker = new CircuitBreaker(failureThreshold, TimeUnit.SECONDS.toMillis(openSeconds));
+
+        successTimer = verifyTimer("success");
+        rejectedTimer = verifyTimer("rejected");
+        errorTimer = verifyTimer("error");
+        shortCircuitedCounter = Counter.builder("recaptcha.verify.short-circuited")
+                .description("Verificaciones resueltas sin llamar al proveedor (circuito abierto)")
+                .register(meterRegistry);
+        awaitTimedOutCounter = Counter.builder("recaptcha.verify.await-timed-out")
+                .description("Veredictos no recibidos dentro de await-timeout-ms")
+                .register(meterRegistry);
+        Gauge.builder("recaptcha.circuit.open", circuitBreaker,
+                        breaker -> breaker.getState() == CircuitBreaker.State.CLOSED ? 0 : 1)
+                .description("1 si el circuito hacia reCAPTCHA está abierto o en prueba")
+                .register(meterRegistry);
+    }
+
+    private Timer verifyTimer(String outcome) {
+        return Timer.builder("recaptcha.verify.duration")
+                .description("Latencia de la verificación reCAPTCHA")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Inicia la verificación de un token para una acción de autenticación.
+     *
+     * Con recaptcha.overlap=true la llamada al proveedor sale de inmediato en
+     * el dispatcher de OkHttp y la petición continúa con su trabajo de BD/hash;
+     * el veredicto se exige con awaitVerdict antes de confirmar cualquier
+     * efecto. Con overlap=false se verifica aquí mismo, como antes.
+     *
+     * Un reintento del mismo cliente con el mismo token y acción reutiliza el
+     * veredicto original (RecaptchaVerdictCache) sin volver a llamar al
+     * proveedor. Las peticiones duplicadas esperan su turno, y tras una acción
+     * con éxito el token ya no sirve.
+     *
+     * Si el veredicto ya se sabe falso (token ausente o vacío, ya consumido o
+     * rechazado en un intento anterior) se rechaza aquí mismo, antes de
+     * cualquier trabajo de BD o hash.
+     *
+     * @param token             Token reCAPTCHA enviado por el cliente
+     * @param action            Acción de autenticación (p. ej. "login")
+     * @param clientFingerprint Huella del cliente (IP y User-Agent)
+     * @return Uso del veredicto por esta petición; el llamador debe cerrarlo
+     *         con finish (AuthService lo hace al terminar la transacción)
+     * @throws AuthenticationException (RCPTER) si el veredicto ya se sabe falso
+     *                                 o, con overlap=false, si la verificación
+     *                                 falla
+     */
+    public RecaptchaVerdictCache.Claim startVerification(String token, String action, String clientFingerprint) {
+        RecaptchaVerdictCache.Claim claim = token == null || token.isBlank()
+                ? verdictCache.rejected()
+                : cachedVerification(token, action, clientFingerprint);
+        CompletableFuture<Boolean> verdict = claim.verdict();
+        if (!overlap || (verdict.isDone() && !verdict.getNow(true))) {
+            try {
+                awaitVerdict(verdict);
+            } catch (RuntimeException e) {
+                claim.finish(false);
+                throw e;
+            }
+        }
+        return claim;
+    }
+
+    private RecaptchaVerdictCache.Claim cachedVerification(String token, String action, String clientFingerprint) {
+        RecaptchaVerdictCache.Reservation reservation = verdictCache.reserve(token, action, clientFingerprint);
+        if (!reservation.owner()) {
+            return reservation.claim();
+        }
+        call(token).thenAccept(result -> {
+            // Un veredicto por error o circuito abierto no se recuerda: el reintento vuelve a preguntar
+            if (!result.fromProvider()) {
+                verdictCache.invalidate(token, action, clientFingerprint);
             }
-            return false;
-        } catch (Exception e) {
-            return false;
+            reservation.verdict().complete(result.success());
+        });
+        return reservation.claim();
+    }
+
+    /**
+     * Espera el veredicto de una verificación iniciada con startVerification,
+     * como mucho await-timeout-ms. Si no llega a tiempo se aplica
+     * recaptcha.fail-open, igual que ante un error del proveedor.
+     *
+     * @throws AuthenticationException (RCPTER) si el token no es válido
+     */
+    public void awaitVerdict(CompletableFuture<Boolean> verdict) {
+        boolean success;
+        try {
+            success = verdict.get(awaitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            awaitTimedOutCounter.increment();
+            log.warn("Veredicto reCAPTCHA no disponible en {} ms ({})", awaitTimeoutMs,
+                    failOpen ? "fail-open" : "fail-closed");
+            success = failOpen;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            success = false;
+        }
+        if (!success) {
+            throw new AuthenticationException("RCPTER", "reCAPTCHA verification failed");
+        }
+    }
+
+    /**
+     * Llama al proveedor sin bloquear. El futuro siempre se completa con un
+     * Verdict (nunca excepcionalmente): ante errores vale recaptcha.fail-open.
+     */
+    private CompletableFuture<Verdict> call(String token) {
+        if (!circuitBreaker.tryAcquire()) {
+            shortCircuitedCounter.increment();
+            return CompletableFuture.completedFuture(new Verdict(failOpen, false));
         }
+
+        Request request = new Request.Builder()
+                .url(verifyUrl)
+                .post(new FormBody.Builder()
+                        .add("secret", secretKey)
+                        .add("response", token)
+                        .build())
+                .build();
+
+        CompletableFuture<Verdict> verdict = new CompletableFuture<>();
+        long start = System.nanoTime();
+        client.newCall(request).enqueue(new Callback() {
+            @Override
+            public void onResponse(Call call, Response response) {
+                try (response) {
+                    ResponseBody body = response.body();
+                    if (!response.isSuccessful() || body == null) {
+                        throw new IllegalStateException("HTTP " + response.code());
+                    }
+                    JsonNode json = objectMapper.readTree(body.byteStream());
+                    boolean success = json.path("success").asBoolean(false);
+
+                    circuitBreaker.recordSuccess();
+                    (success ? successTimer : rejectedTimer).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                    verdict.complete(new Verdict(success, true));
+                } catch (Exception e) {
+                    onProviderError(e);
+                }
+            }
+
+            @Override
+            public void onFailure(Call call, IOException e) {
+                onProviderError(e);
+            }
+
+            private void onProviderError(Exception e) {
+                circuitBreaker.recordFailure();
+                errorTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                log.warn("Error verificando reCAPTCHA ({}): {}", failOpen ? "fail-open" : "fail-closed", e.getMessage());
+                verdict.complete(new Verdict(failOpen, false));
+            }
+        });
+        return verdict;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        client.dispatcher().executorService().shutdown();
+        client.connectionPool().evictAll();
+    }
+
+    /**
+     * @param success      Resultado de la verificación
+     * @param fromProvider false si se resolvió por error o circuito abierto
+     */
+    private record Verdict(boolean success, boolean fromProvider) {
     }
 }
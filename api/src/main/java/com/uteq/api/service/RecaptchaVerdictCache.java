@@ -0,0 +1,245 @@
+package com.uteq.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Caché de veredictos reCAPTCHA para reintentos del cliente.
+ *
+ * Google rechaza un token ya verificado, así que un reintento de axios (p. ej.
+ * tras un corte de red) con el mismo recaptchaToken fallaba después de una
+ * llamada externa inútil. Aquí el veredicto original se reutiliza durante
+ * ttl-seconds sin volver a llamar a recaptcha.verify.url.
+ *
+ * - Clave: DigestKey de token + acción + huella del cliente (IP y
+ * User-Agent). Un token capturado no sirve desde otro cliente ni para otra
+ * acción.
+ * - Se guarda el futuro del veredicto, así que un reintento concurrente espera
+ * la verificación en curso en vez de lanzar otra.
+ * - Una sola petición a la vez usa el veredicto (Claim): las duplicadas
+ * concurrentes esperan a que termine. Si su acción tiene éxito y hace commit,
+ * el token queda consumido y el resto recibe false; si falla (contraseña
+ * incorrecta, SRVBSY, rollback), la siguiente petición lo puede usar.
+ * - Tamaño máximo fijo (max-entries), descartando la menos usada.
+ */
+@Service
+@RequiredArgsConstructor
+public class RecaptchaVerdictCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${recaptcha.verdict-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${recaptcha.verdict-cache.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${recaptcha.verdict-cache.ttl-seconds:120}")
+    private long ttlSeconds;
+
+    private Map<DigestKey, CachedVerdict> entries;
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    void init() {
+        entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<DigestKey, CachedVerdict> eldest) {
+                return size() > maxEntries;
+            }
+        };
+
+        Gauge.builder("recaptcha.verdict-cache.size", this, RecaptchaVerdictCache::size)
+                .description("Veredictos reCAPTCHA en caché")
+                .register(meterRegistry);
+        hitCounter = Counter.builder("recaptcha.verdict-cache.requests").tag("result", "hit").register(meterRegistry);
+        missCounter = Counter.builder("recaptcha.verdict-cache.requests").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Devuelve el veredicto ya conocido (o en curso) para el token, la acción y
+     * el cliente, o reserva la entrada con un futuro nuevo que el llamador debe
+     * completar. En ambos casos la petición recibe su Claim, que debe cerrar
+     * con finish al terminar.
+     */
+    public Reservation reserve(String token, String action, String clientFingerprint) {
+        long now = System.currentTimeMillis();
+        CachedVerdict cached;
+        boolean owner;
+
+        if (!enabled) {
+            cached = new CachedVerdict(new CompletableFuture<>(), now);
+            owner = true;
+        } else {
+            DigestKey key = DigestKey.of(token, action + "|" + clientFingerprint);
+            synchronized (this) {
+                cached = entries.get(key);
+                owner = cached == null || cached.expiresAtMillis <= now;
+                if (owner) {
+                    cached = new CachedVerdict(new CompletableFuture<>(), now + ttlSeconds * 1000);
+                    entries.put(key, cached);
+                    missCounter.increment();
+                } else {
+                    hitCounter.increment();
+                }
+            }
+        }
+
+        Claim claim = new Claim(cached);
+        acquire(claim);
+        return new Reservation(cached.verdict, claim, owner);
+    }
+
+    /**
+     * Claim ya resuelto a false (p. ej. sin token); finish no hace nada.
+     */
+    public Claim rejected() {
+        CachedVerdict rejected = new CachedVerdict(CompletableFuture.completedFuture(false), 0);
+        rejected.consumed = true;
+        Claim claim = new Claim(rejected);
+        acquire(claim);
+        return claim;
+    }
+
+    /**
+     * Descarta una entrada, p. ej. cuando el veredicto no vino del proveedor
+     * (error o circuito abierto) y un reintento debe volver a consultarlo.
+     */
+    public void invalidate(String token, String action, String clientFingerprint) {
+        if (!enabled) {
+            return;
+        }
+        DigestKey key = DigestKey.of(token, action + "|" + clientFingerprint);
+        synchronized (this) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Toma el veredicto para el Claim si está libre; si otra petición lo
+     * tiene, vuelve a intentarlo cuando lo suelte.
+     */
+    private void acquire(Claim claim) {
+        CachedVerdict cached = claim.cached;
+        CompletableFuture<Void> busy = null;
+        boolean holding = false;
+        synchronized (this) {
+            if (claim.finished) {
+                return;
+            }
+            if (!cached.consumed && cached.holder == null) {
+                cached.holder = claim;
+                holding = true;
+            } else if (!cached.consumed) {
+                busy = cached.released;
+            }
+        }
+
+        if (busy != null) {
+            busy.thenRun(() -> acquire(claim));
+        } else if (holding) {
+            cached.verdict.thenAccept(claim.verdict::complete);
+        } else {
+            claim.verdict.complete(false);
+        }
+    }
+
+    private void finish(Claim claim, boolean consume) {
+        CompletableFuture<Void> released = null;
+        synchronized (this) {
+            if (claim.finished) {
+                return;
+            }
+            claim.finished = true;
+            CachedVerdict cached = claim.cached;
+            if (cached.holder == claim) {
+                cached.consumed = consume;
+                cached.holder = null;
+                released = cached.released;
+                cached.released = new CompletableFuture<>();
+            }
+        }
+        claim.verdict.complete(false);
+        if (released != null) {
+            released.complete(null);
+        }
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param verdict Veredicto compartido (posiblemente en curso); solo lo
+     *                completa el dueño
+     * @param claim   Uso del veredicto por esta petición
+     * @param owner   true si el llamador debe verificar y completar el futuro
+     */
+    public record Reservation(CompletableFuture<Boolean> verdict, Claim claim, boolean owner) {
+    }
+
+    /**
+     * Uso del veredicto por una petición. verdict() se resuelve cuando la
+     * petición obtiene el turno: true solo si el veredicto compartido es true y
+     * el token no fue consumido por una acción anterior.
+     */
+    public final class Claim {
+
+        private final CachedVerdict cached;
+        private final CompletableFuture<Boolean> verdict = new CompletableFuture<>();
+        private volatile boolean succeeded;
+        private boolean finished;
+
+        private Claim(CachedVerdict cached) {
+            this.cached = cached;
+        }
+
+        public CompletableFuture<Boolean> verdict() {
+            return verdict;
+        }
+
+        /**
+         * Marca que la acción protegida tuvo éxito; el token se consume en
+         * finish si además la transacción hizo commit.
+         */
+        public void succeeded() {
+            succeeded = true;
+        }
+
+        /**
+         * Suelta el veredicto. Idempotente.
+         *
+         * @param committed true si la transacción de la acción hizo commit
+         */
+        public void finish(boolean committed) {
+            RecaptchaVerdictCache.this.finish(this, committed && succeeded);
+        }
+    }
+
+    /**
+     * Estado mutable protegido por el monitor de la caché (salvo verdict).
+     */
+    private static final class CachedVerdict {
+
+        private final CompletableFuture<Boolean> verdict;
+        private final long expiresAtMillis;
+        private boolean consumed;
+        private Claim holder;
+        private CompletableFuture<Void> released = new CompletableFuture<>();
+
+        private CachedVerdict(CompletableFuture<Boolean> verdict, long expiresAtMillis) {
+            this.verdict = verdict;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+    }
+}
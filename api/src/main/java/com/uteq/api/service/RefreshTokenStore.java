@@ -0,0 +1,186 @@
+package com.uteq.api.service;
+
+import com.uteq.api.config.JwtConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estado de rotación de los refresh tokens, por familia (= sesión).
+ *
+ * Cada refresh token lleva una generación ("gen"). Al refrescar se emite la
+ * generación siguiente y solo la vigente es válida. Presentar otra generación
+ * es reutilización: se revoca la sesión completa.
+ *
+ * - pl_refresh_token (api/db/001_pl_refresh_token.sql) es la fuente de verdad.
+ * Cada rotación es un compare-and-set en la BD, así que dos réplicas nunca
+ * emiten la misma generación siguiente. Una sesión sin fila está en la
+ * generación 0.
+ * - La memoria guarda la última generación conocida por familia. Si no hay
+ * entrada, o si no coincide con la presentada, se vuelve a leer la fila antes
+ * de decidir; un estado viejo nunca revoca una sesión.
+ * - Gracia: dos refrescos concurrentes con el mismo token (p. ej. dos
+ * pestañas) no son reutilización. Durante grace-seconds tras una rotación,
+ * la generación anterior recibe la vigente sin volver a rotar.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenStore {
+
+    private static final String SQL_SELECT =
+            "SELECT generation, date_update FROM pl_refresh_token WHERE id_session = ?";
+
+    /**
+     * Inserta la generación 1 (la sesión no tenía fila, es decir, estaba en 0)
+     * o avanza la existente solo si sigue en la generación presentada.
+     */
+    private static final String SQL_ADVANCE =
+            "INSERT INTO pl_refresh_token (id_session, generation, date_update) VALUES (?, ?, ?) " +
+            "ON CONFLICT (id_session) DO UPDATE SET " +
+            "generation = EXCLUDED.generation, date_update = EXCLUDED.date_update " +
+            "WHERE pl_refresh_token.generation = ?";
+
+    private static final String SQL_PURGE =
+            "DELETE FROM pl_refresh_token WHERE date_update <= ?";
+
+    private static final String SQL_CLOSE_SESSION =
+            "UPDATE pl_session_user SET is_closed = TRUE, date_register_ed = NOW() " +
+            "WHERE id_session = ? AND is_closed = FALSE";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JwtConfig jwtConfig;
+    private final SessionRevocationService sessionRevocationService;
+
+    @Value("${auth.refresh-rotation.grace-seconds:10}")
+    private long graceSeconds;
+
+    @Value("${auth.refresh-rotation.purge-interval-seconds:3600}")
+    private long purgeIntervalSeconds;
+
+    private final ConcurrentHashMap<UUID, FamilyState> families = new ConcurrentHashMap<>();
+
+    private ScheduledExecutorService purger;
+
+    @PostConstruct
+    void init() {
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "refresh-token-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::purgeSafely, purgeIntervalSeconds, purgeIntervalSeconds, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Registra una familia nueva (login) con generación 0. No escribe en la BD:
+     * la fila se crea en la primera rotación.
+     */
+    public void register(UUID sessionId) {
+        families.put(sessionId, new FamilyState(0, System.currentTimeMillis()));
+    }
+
+    /**
+     * Consume la generación presentada y devuelve la siguiente.
+     *
+     * @return la nueva generación (o la vigente, dentro de la ventana de
+     *         gracia), o vacío si la generación no es la vigente (en cuyo caso
+     *         la sesión queda revocada)
+     */
+    public OptionalInt rotate(UUID sessionId, int presentedGeneration) {
+        FamilyState state = families.get(sessionId);
+        boolean fresh = false;
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            if (state == null || (!fresh && state.generation() != presentedGeneration)) {
+                // Otra réplica pudo rotar la familia: se decide con la fila
+                state = load(sessionId);
+                fresh = true;
+            }
+            long now = System.currentTimeMillis();
+
+            if (presentedGeneration == state.generation()) {
+                if (advance(sessionId, presentedGeneration, now)) {
+                    families.put(sessionId, new FamilyState(presentedGeneration + 1, now));
+                    return OptionalInt.of(presentedGeneration + 1);
+                }
+                // Se perdió la carrera con otro refresco: se relee y se reevalúa
+                state = null;
+                continue;
+            }
+            if (presentedGeneration == state.generation() - 1
+                    && now - state.updatedAt() <= TimeUnit.SECONDS.toMillis(graceSeconds)) {
+                return OptionalInt.of(state.generation());
+            }
+
+            log.warn("Refresh token de generación {} no vigente, se revoca la sesión {}", presentedGeneration, sessionId);
+            revokeFamily(sessionId);
+            return OptionalInt.empty();
+        }
+        throw new IllegalStateException("Demasiados refrescos concurrentes para la sesión " + sessionId);
+    }
+
+    private FamilyState load(UUID sessionId) {
+        List<FamilyState> rows = jdbcTemplate.query(SQL_SELECT,
+                (rs, rowNum) -> new FamilyState(rs.getInt("generation"), rs.getTimestamp("date_update").getTime()),
+                sessionId);
+        FamilyState state = rows.isEmpty() ? new FamilyState(0, 0) : rows.get(0);
+        families.put(sessionId, state);
+        return state;
+    }
+
+    private boolean advance(UUID sessionId, int presentedGeneration, long now) {
+        return jdbcTemplate.update(SQL_ADVANCE,
+                sessionId, presentedGeneration + 1, new Timestamp(now), presentedGeneration) > 0;
+    }
+
+    private void revokeFamily(UUID sessionId) {
+        families.remove(sessionId);
+        sessionRevocationService.revoke(sessionId);
+        try {
+            jdbcTemplate.update(SQL_CLOSE_SESSION, sessionId);
+        } catch (Exception e) {
+            log.warn("No se pudo cerrar la sesión {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    private void purgeSafely() {
+        try {
+            purge();
+        } catch (Exception e) {
+            log.warn("No se pudieron purgar las familias de refresh token: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Descarta las familias que ya no pueden tener refresh tokens vigentes.
+     */
+    private void purge() {
+        long cutoff = System.currentTimeMillis() - jwtConfig.getRefreshExpiration();
+        families.values().removeIf(state -> state.updatedAt() <= cutoff);
+        jdbcTemplate.update(SQL_PURGE, new Timestamp(cutoff));
+    }
+
+    @PreDestroy
+    void shutdown() {
+        purger.shutdownNow();
+    }
+
+    private record FamilyState(int generation, long updatedAt) {
+    }
+}
@@ -1,5 +1,6 @@
 package com.uteq.api.service;
 
+import com.uteq.api.dto.KeysetPage;
 import com.uteq.api.entity.ResetPass;
 import com.uteq.api.entity.User;
 import com.uteq.api.repository.ResetPassRepository;
@@ -9,15 +10,36 @@ import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class ResetPassService {
     
+    private static final String FETCH_JOINS = "JOIN FETCH e.user u JOIN FETCH u.country";
+    
     private final ResetPassRepository resetPassRepository;
+    private final KeysetReader keysetReader;
     
+    /**
+     * Todos los restablecimientos ordenados por idReset.
+     */
     public List<ResetPass> findAll() {
-        return resetPassRepository.findAll();
+        return keysetReader.list(ResetPass.class, FETCH_JOINS, "idReset");
+    }
+
+    /**
+     * Página de restablecimientos ordenados por idReset, a partir del cursor after.
+     */
+    public KeysetPage<ResetPass> findPage(Integer after, Integer limit) {
+        return keysetReader.page(ResetPass.class, FETCH_JOINS, "idReset", after, limit, ResetPass::getIdReset);
+    }
+
+    /**
+     * Recorre todos los restablecimientos con idReset mayor que after sin cargarlos en memoria.
+     */
+    public void streamAll(Integer after, Consumer<ResetPass> consumer) {
+        keysetReader.stream(ResetPass.class, FETCH_JOINS, "idReset", after, consumer);
     }
     
     public Optional<ResetPass> findById(Integer id) {
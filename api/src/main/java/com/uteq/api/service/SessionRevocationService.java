@@ -0,0 +1,226 @@
+package com.uteq.api.service;
+
+import com.uteq.api.config.JwtConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Conjunto en memoria de sesiones revocadas (cerradas o eliminadas).
+ *
+ * Consultar si una sesión está revocada cuesta una búsqueda en un hash, sin
+ * viaje a la BD. Cada sesión se conserva hasta que expira el token más largo
+ * que pudo emitirse para ella (access o refresh), después ya no hace falta.
+ *
+ * Las revocaciones se propagan a todas las réplicas de la API mediante
+ * LISTEN/NOTIFY de PostgreSQL en el canal session_revoked. Al (re)conectar el
+ * listener se recargan las sesiones cerradas recientemente y las registradas
+ * en pl_session_revoked (también las ya eliminadas, ver
+ * api/db/004_pl_session_revoked.sql), por si se perdió alguna notificación.
+ *
+ * El listener usa su propia conexión (DriverManager, fuera del pool de
+ * Hikari), ya que la mantiene abierta mientras corre la aplicación.
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class SessionRevocationService {
+
+    private static final String CHANNEL = "session_revoked";
+    private static final int POLL_TIMEOUT_MS = 5000;
+    private static final long RECONNECT_DELAY_MS = 5000;
+
+    private static final String SQL_RECENTLY_CLOSED =
+            "SELECT id_session FROM pl_session_user " +
+            "WHERE is_closed = TRUE AND date_register_ed > NOW() - (? * INTERVAL '1 millisecond') " +
+            "UNION " +
+            "SELECT id_session FROM pl_session_revoked " +
+            "WHERE date_revoked > NOW() - (? * INTERVAL '1 millisecond')";
+
+    private static final String SQL_REVOKE =
+            "WITH tombstone AS (" +
+            "INSERT INTO pl_session_revoked (id_session, date_revoked) VALUES (?, NOW()) " +
+            "ON CONFLICT (id_session) DO NOTHING" +
+            ") SELECT pg_notify(?, ?)";
+
+    private static final String SQL_PURGE =
+            "DELETE FROM pl_session_revoked WHERE date_revoked <= ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final JwtConfig jwtConfig;
+    private final VerifiedTokenCache verifiedTokenCache;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${auth.session-revocation.listen:true}")
+    private boolean listen;
+
+    @Value("${auth.session-revocation.purge-interval-seconds:60}")
+    private long purgeIntervalSeconds;
+
+    @Value("${spring.datasource.url}")
+    private String jdbcUrl;
+
+    @Value("${spring.datasource.username}")
+    private String jdbcUsername;
+
+    @Value("${spring.datasource.password}")
+    private String jdbcPassword;
+
+    /**
+     * ID de sesión -> instante (epoch ms) a partir del cual ya no hace falta recordarla
+     */
+    private final ConcurrentHashMap<UUID, Long> revokedSessions = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread listenerThread;
+    private ScheduledExecutorService purger;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("auth.session-revocation.size", revokedSessions, ConcurrentHashMap::size)
+                .description("Sesiones revocadas retenidas en memoria")
+                .register(meterRegistry);
+
+        // La purga no depende del listener: con listen=false el conjunto también crece
+        purger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-revocation-purger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        purger.scheduleWithFixedDelay(this::purgeSafely, purgeIntervalSeconds, purgeIntervalSeconds, TimeUnit.SECONDS);
+
+        if (!listen) {
+            return;
+        }
+        running = true;
+        listenerThread = new Thread(this::listenLoop, "session-revocation-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+    }
+
+    /**
+     * Indica si la sesión fue cerrada o eliminada.
+     */
+    public boolean isRevoked(UUID sessionId) {
+        if (sessionId == null) {
+            return false;
+        }
+        Long retainUntil = revokedSessions.get(sessionId);
+        return retainUntil != null && retainUntil > System.currentTimeMillis();
+    }
+
+    /**
+     * Revoca una sesión en este nodo, la registra en pl_session_revoked y
+     * notifica al resto de réplicas. Si se llama dentro de una transacción,
+     * el registro y la notificación se confirman al hacer commit.
+     */
+    public void revoke(UUID sessionId) {
+        applyRevocation(sessionId);
+        try {
+            jdbcTemplate.queryForList(SQL_REVOKE, sessionId, CHANNEL, sessionId.toString());
+        } catch (Exception e) {
+            log.warn("No se pudo notificar la revocación de la sesión {}: {}", sessionId, e.getMessage());
+        }
+    }
+
+    private void applyRevocation(UUID sessionId) {
+        revokedSessions.put(sessionId, System.currentTimeMillis() + maxTokenLifetimeMillis());
+        verifiedTokenCache.evictSession(sessionId);
+    }
+
+    private void listenLoop() {
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(jdbcUrl, jdbcUsername, jdbcPassword)) {
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                try (Statement statement = connection.createStatement()) {
+                    statement.execute("LISTEN " + CHANNEL);
+                }
+                loadRecentlyClosedSessions();
+
+                while (running) {
+                    PGNotification[] notifications = pgConnection.getNotifications(POLL_TIMEOUT_MS);
+                    if (notifications != null) {
+                        for (PGNotification notification : notifications) {
+                            applyNotification(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Listener de revocación de sesiones desconectado: {}", e.getMessage());
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void applyNotification(String payload) {
+        try {
+            applyRevocation(UUID.fromString(payload));
+        } catch (IllegalArgumentException e) {
+            log.warn("Notificación de revocación inválida: {}", payload);
+        }
+    }
+
+    private void loadRecentlyClosedSessions() {
+        long maxLifetime = maxTokenLifetimeMillis();
+        List<UUID> closedSessions = jdbcTemplate.queryForList(SQL_RECENTLY_CLOSED, UUID.class, maxLifetime, maxLifetime);
+        closedSessions.forEach(this::applyRevocation);
+        log.info("Sesiones revocadas cargadas: {}", closedSessions.size());
+    }
+
+    private void purgeSafely() {
+        try {
+            purgeExpired();
+        } catch (Exception e) {
+            log.warn("No se pudieron purgar las sesiones revocadas: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Descarta las sesiones de las que ya no puede quedar ningún token vigente.
+     */
+    private void purgeExpired() {
+        long now = System.currentTimeMillis();
+        revokedSessions.values().removeIf(retainUntil -> retainUntil <= now);
+        jdbcTemplate.update(SQL_PURGE, new Timestamp(now - maxTokenLifetimeMillis()));
+    }
+
+    private long maxTokenLifetimeMillis() {
+        return Math.max(jwtConfig.getExpiration(), jwtConfig.getRefreshExpiration());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        running = false;
+        purger.shutdownNow();
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+}
@@ -1,5 +1,6 @@
 package com.uteq.api.service;
 
+import com.uteq.api.dto.KeysetPage;
 import com.uteq.api.entity.SessionUser;
 import com.uteq.api.entity.User;
 import com.uteq.api.repository.SessionUserRepository;
@@ -9,15 +10,37 @@ import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class SessionUserService {
     
+    private static final String FETCH_JOINS = "JOIN FETCH e.user u JOIN FETCH u.country";
+    
     private final SessionUserRepository sessionUserRepository;
+    private final KeysetReader keysetReader;
+    private final SessionRevocationService sessionRevocationService;
     
+    /**
+     * Todos los sesiones ordenados por idSession.
+     */
     public List<SessionUser> findAll() {
-        return sessionUserRepository.findAll();
+        return keysetReader.list(SessionUser.class, FETCH_JOINS, "idSession");
+    }
+
+    /**
+     * Página de sesiones ordenadas por idSession, a partir del cursor after.
+     */
+    public KeysetPage<SessionUser> findPage(UUID after, Integer limit) {
+        return keysetReader.page(SessionUser.class, FETCH_JOINS, "idSession", after, limit, SessionUser::getIdSession);
+    }
+
+    /**
+     * Recorre todas las sesiones con idSession mayor que after sin cargarlas en memoria.
+     */
+    public void streamAll(UUID after, Consumer<SessionUser> consumer) {
+        keysetReader.stream(SessionUser.class, FETCH_JOINS, "idSession", after, consumer);
     }
     
     public Optional<SessionUser> findById(UUID id) {
@@ -25,10 +48,19 @@ public class SessionUserService {
     }
     
     public SessionUser save(SessionUser sessionUser) {
-        return sessionUserRepository.save(sessionUser);
+        SessionUser saved = sessionUserRepository.save(sessionUser);
+        if (Boolean.TRUE.equals(saved.getIsClosed())) {
+            sessionRevocationService.revoke(saved.getIdSession());
+        }
+        return saved;
     }
     
+    /**
+     * Registra la revocación antes de borrar: si el proceso cae entre ambos
+     * pasos, la sesión sigue revocada en todas las réplicas.
+     */
     public void deleteById(UUID id) {
+        sessionRevocationService.revoke(id);
         sessionUserRepository.deleteById(id);
     }
     
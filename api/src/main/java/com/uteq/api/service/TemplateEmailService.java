@@ -13,6 +13,7 @@ import java.util.Optional;
 public class TemplateEmailService {
     
     private final TemplateEmailRepository templateEmailRepository;
+    private final EmailTemplateCache emailTemplateCache;
     
     public List<TemplateEmail> findAll() {
         return templateEmailRepository.findAll();
@@ -23,11 +24,14 @@ public class TemplateEmailService {
     }
     
     public TemplateEmail save(TemplateEmail templateEmail) {
-        return templateEmailRepository.save(templateEmail);
+        TemplateEmail saved = templateEmailRepository.save(templateEmail);
+        emailTemplateCache.invalidateAll();
+        return saved;
     }
     
     public void deleteById(Integer id) {
         templateEmailRepository.deleteById(id);
+        emailTemplateCache.invalidateAll();
     }
     
     public Optional<TemplateEmail> findByTypeTempl(String typeTempl) {
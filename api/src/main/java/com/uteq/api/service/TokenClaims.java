@@ -0,0 +1,34 @@
+package com.uteq.api.service;
+
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Claims de un JWT ya verificado (firma y expiración). Inmutable.
+ *
+ * @param userId    ID del usuario
+ * @param sessionId ID de la sesión (pl_session_user)
+ * @param email     Email del usuario (null en refresh tokens emitidos antes
+ *                  de la rotación)
+ * @param username  Nombre de usuario (null en refresh tokens emitidos antes
+ *                  de la rotación)
+ * @param type      "refresh" para tokens de refresco, null para access tokens
+ * @param issuedAt  Fecha de emisión
+ * @param expiresAt Fecha de expiración
+ * @param generation Generación del refresh token dentro de su sesión (0 en
+ *                   access tokens y en refresh tokens anteriores a la rotación)
+ */
+public record TokenClaims(
+        UUID userId,
+        UUID sessionId,
+        String email,
+        String username,
+        String type,
+        Instant issuedAt,
+        Instant expiresAt,
+        int generation) {
+
+    public boolean isRefreshToken() {
+        return "refresh".equals(type);
+    }
+}
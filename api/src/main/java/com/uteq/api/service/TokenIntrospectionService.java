@@ -0,0 +1,148 @@
+package com.uteq.api.service;
+
+import com.uteq.api.exception.ValidationException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Introspección de tokens en lote para gateways (proxy inverso, servicio de IA).
+ *
+ * Un solo POST valida muchos tokens: el costo HTTP/JSON se paga una vez por
+ * lote y no por token. Los tokens se reparten en bloques contiguos, uno por
+ * hilo del pool, y cada bloque se verifica con JwtService (parser y claves
+ * compartidos, caché de tokens verificados). Los lotes pequeños se verifican
+ * en el hilo de la petición, donde repartir costaría más que verificar.
+ *
+ * Si el pool está saturado el bloque se ejecuta en el hilo que lo envía
+ * (CallerRunsPolicy), así que el lote siempre se completa.
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenIntrospectionService {
+
+    private final JwtService jwtService;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${auth.introspection.max-batch-size:500}")
+    private int maxBatchSize;
+
+    @Value("${auth.introspection.parallel-threshold:32}")
+    private int parallelThreshold;
+
+    @Value("${auth.introspection.threads:0}")
+    private int threads;
+
+    private ThreadPoolExecutor executor;
+    private DistributionSummary batchSizeSummary;
+
+    @PostConstruct
+    void init() {
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadCount = new AtomicInteger();
+
+        executor = new ThreadPoolExecutor(
+                poolSize,
+                poolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(poolSize * 4),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "token-introspection-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        batchSizeSummary = DistributionSummary.builder("auth.introspection.batch.size")
+                .description("Tokens por petición de introspección en lote")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Verifica un lote de tokens.
+     *
+     * @param tokens Tokens a verificar (sin prefijo Bearer)
+     * @return Un resultado por token, en el mismo orden
+     * @throws ValidationException (TKNLIM) si el lote supera max-batch-size
+     */
+    public List<Map<String, Object>> introspect(List<String> tokens) {
+        if (tokens.size() > maxBatchSize) {
+            throw new ValidationException("TKNLIM",
+                    "Se permiten como máximo " + maxBatchSize + " tokens por petición");
+        }
+        batchSizeSummary.record(tokens.size());
+
+        @SuppressWarnings("unchecked")
+        Map<String, Object>[] results = new Map[tokens.size()];
+
+        if (tokens.size() < parallelThreshold) {
+            verifyRange(tokens, results, 0, tokens.size());
+            return List.of(results);
+        }
+
+        int chunks = Math.min(executor.getCorePoolSize(), tokens.size());
+        int chunkSize = (tokens.size() + chunks - 1) / chunks;
+        List<CompletableFuture<Void>> futures = new ArrayList<>(chunks);
+        for (int from = 0; from < tokens.size(); from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, tokens.size());
+            futures.add(CompletableFuture.runAsync(() -> verifyRange(tokens, results, start, end), executor));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        return List.of(results);
+    }
+
+    private void verifyRange(List<String> tokens, Map<String, Object>[] results, int from, int to) {
+        for (int i = from; i < to; i++) {
+            results[i] = verify(tokens.get(i));
+        }
+    }
+
+    private Map<String, Object> verify(String token) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        if (token == null || token.isBlank()) {
+            result.put("valid", false);
+            result.put("error", "TKNREQ");
+            return result;
+        }
+
+        Optional<TokenClaims> claims = jwtService.verifyToken(token);
+        if (claims.isEmpty() || claims.get().userId() == null) {
+            result.put("valid", false);
+            result.put("error", "TKNINV");
+            return result;
+        }
+
+        TokenClaims tokenClaims = claims.get();
+        result.put("valid", true);
+        result.put("userId", tokenClaims.userId().toString());
+        result.put("sessionId", tokenClaims.sessionId() != null ? tokenClaims.sessionId().toString() : null);
+        result.put("email", tokenClaims.email());
+        result.put("username", tokenClaims.username());
+        result.put("type", tokenClaims.isRefreshToken() ? "refresh" : "access");
+        result.put("expiresAt", tokenClaims.expiresAt() != null ? tokenClaims.expiresAt().getEpochSecond() : null);
+        return result;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -1,5 +1,6 @@
 package com.uteq.api.service;
 
+import com.uteq.api.dto.KeysetPage;
 import com.uteq.api.entity.User;
 import com.uteq.api.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
@@ -8,15 +9,36 @@ import org.springframework.stereotype.Service;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class UserService {
     
+    private static final String FETCH_JOINS = "JOIN FETCH e.country";
+    
     private final UserRepository userRepository;
+    private final KeysetReader keysetReader;
     
+    /**
+     * Todos los usuarios ordenados por idUser.
+     */
     public List<User> findAll() {
-        return userRepository.findAll();
+        return keysetReader.list(User.class, FETCH_JOINS, "idUser");
+    }
+
+    /**
+     * Página de usuarios ordenados por idUser, a partir del cursor after.
+     */
+    public KeysetPage<User> findPage(UUID after, Integer limit) {
+        return keysetReader.page(User.class, FETCH_JOINS, "idUser", after, limit, User::getIdUser);
+    }
+
+    /**
+     * Recorre todos los usuarios con idUser mayor que after sin cargarlos en memoria.
+     */
+    public void streamAll(UUID after, Consumer<User> consumer) {
+        keysetReader.stream(User.class, FETCH_JOINS, "idUser", after, consumer);
     }
     
     public Optional<User> findById(UUID id) {
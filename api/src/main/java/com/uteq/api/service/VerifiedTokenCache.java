@@ -0,0 +1,203 @@
+package com.uteq.api.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Caché LRU/TTL de tokens ya verificados, para que las validaciones repetidas
+ * del mismo token no vuelvan a verificar la firma.
+ *
+ * - La clave es un DigestKey del token, nunca el token en sí.
+ * - Cada entrada vence en el mínimo entre su TTL y el exp del propio token.
+ * - ConcurrentHashMap sin bloqueo global en get/put. El LRU es aproximado: al
+ * pasar de max-entries un solo hilo descarta las vencidas y el 10% de acceso
+ * más antiguo.
+ * - Un índice sessionId → digests permite eliminar las entradas de una sesión
+ * cerrada o borrada sin recorrer toda la caché.
+ */
+@Service
+@RequiredArgsConstructor
+public class VerifiedTokenCache {
+
+    private final MeterRegistry meterRegistry;
+
+    @Value("${auth.token-cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${auth.token-cache.max-entries:50000}")
+    private int maxEntries;
+
+    @Value("${auth.token-cache.ttl-seconds:300}")
+    private long ttlSeconds;
+
+    private final ConcurrentHashMap<DigestKey, CachedClaims> entries = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<UUID, Set<DigestKey>> sessionIndex = new ConcurrentHashMap<>();
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    private Counter hitCounter;
+    private Counter missCounter;
+
+    @PostConstruct
+    void init() {
+        Gauge.builder("auth.token-cache.size", entries, ConcurrentHashMap::size)
+                .description("Tokens verificados en caché")
+                .register(meterRegistry);
+        hitCounter = Counter.builder("auth.token-cache.requests").tag("result", "hit").register(meterRegistry);
+        missCounter = Counter.builder("auth.token-cache.requests").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Devuelve los claims de un token verificado previamente, si siguen vigentes.
+     */
+    public Optional<TokenClaims> get(String token) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        DigestKey digest = DigestKey.of(token);
+        long now = System.currentTimeMillis();
+
+        CachedClaims cached = entries.get(digest);
+        if (cached != null && cached.expiresAtMillis() <= now) {
+            remove(digest, cached);
+            cached = null;
+        }
+
+        if (cached == null) {
+            missCounter.increment();
+            return Optional.empty();
+        }
+        cached.touch(now);
+        hitCounter.increment();
+        return Optional.of(cached.claims());
+    }
+
+    /**
+     * Guarda los claims de un token recién verificado.
+     */
+    public void put(String token, TokenClaims claims) {
+        if (!enabled || claims.expiresAt() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        long expiresAt = Math.min(claims.expiresAt().toEpochMilli(), now + ttlSeconds * 1000);
+        DigestKey digest = DigestKey.of(token);
+
+        if (claims.sessionId() != null) {
+            sessionIndex.computeIfAbsent(claims.sessionId(), id -> ConcurrentHashMap.newKeySet()).add(digest);
+        }
+        entries.put(digest, new CachedClaims(claims, expiresAt, now));
+
+        if (entries.size() > maxEntries) {
+            evictOldest(now);
+        }
+    }
+
+    /**
+     * Elimina todas las entradas de una sesión (cierre o borrado de sesión).
+     * JwtService vuelve a comprobar la revocación en cada acierto, así que una
+     * entrada que escape del índice por una carrera no reabre la sesión.
+     */
+    public void evictSession(UUID sessionId) {
+        Set<DigestKey> digests = sessionIndex.remove(sessionId);
+        if (digests != null) {
+            digests.forEach(entries::remove);
+        }
+    }
+
+    /**
+     * Vacía la caché (p. ej. al rotar la clave de firma).
+     */
+    public void clear() {
+        entries.clear();
+        sessionIndex.clear();
+    }
+
+    /**
+     * Descarta las entradas vencidas y, si no basta, las de acceso más antiguo
+     * hasta dejar un 10% de margen. Solo un hilo lo hace a la vez; el resto
+     * sigue sin esperar y la caché puede pasarse de max-entries por poco.
+     */
+    private void evictOldest(long now) {
+        if (!evictionLock.tryLock()) {
+            return;
+        }
+        try {
+            entries.forEach((digest, cached) -> {
+                if (cached.expiresAtMillis() <= now) {
+                    remove(digest, cached);
+                }
+            });
+            int excess = entries.size() - (maxEntries - Math.max(1, maxEntries / 10));
+            if (excess <= 0) {
+                return;
+            }
+            // Se copia lastAccess antes de ordenar: puede cambiar durante el ordenamiento
+            List<EntryAccess> oldest = entries.entrySet().stream()
+                    .map(entry -> new EntryAccess(entry.getKey(), entry.getValue(), entry.getValue().lastAccess()))
+                    .sorted(Comparator.comparingLong(EntryAccess::lastAccess))
+                    .limit(excess)
+                    .toList();
+            oldest.forEach(access -> remove(access.digest(), access.cached()));
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    private void remove(DigestKey digest, CachedClaims cached) {
+        if (!entries.remove(digest, cached)) {
+            return;
+        }
+        UUID sessionId = cached.claims().sessionId();
+        if (sessionId != null) {
+            sessionIndex.computeIfPresent(sessionId, (id, digests) -> {
+                digests.remove(digest);
+                return digests.isEmpty() ? null : digests;
+            });
+        }
+    }
+
+    private static final class CachedClaims {
+
+        private final TokenClaims claims;
+        private final long expiresAtMillis;
+        private volatile long lastAccess;
+
+        CachedClaims(TokenClaims claims, long expiresAtMillis, long now) {
+            this.claims = claims;
+            this.expiresAtMillis = expiresAtMillis;
+            this.lastAccess = now;
+        }
+
+        TokenClaims claims() {
+            return claims;
+        }
+
+        long expiresAtMillis() {
+            return expiresAtMillis;
+        }
+
+        long lastAccess() {
+            return lastAccess;
+        }
+
+        void touch(long now) {
+            lastAccess = now;
+        }
+    }
+
+    private record EntryAccess(DigestKey digest, CachedClaims cached, long lastAccess) {
+    }
+}
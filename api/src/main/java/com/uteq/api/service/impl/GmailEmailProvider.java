@@ -3,17 +3,18 @@ package com.uteq.api.service.impl;
 import com.uteq.api.service.EmailProvider;
 import jakarta.mail.internet.MimeMessage;
 import lombok.RequiredArgsConstructor;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
 
+import java.util.Date;
+
 @Service
-@ConditionalOnProperty(name = "mail.provider", havingValue = "GMAIL")
 @RequiredArgsConstructor
 public class GmailEmailProvider implements EmailProvider {
 
     private final JavaMailSender mailSender;
+    private final SmtpTransportPool transportPool;
 
     @Override
     public void sendEmail(String to, String subject, String htmlContent) throws Exception {
@@ -23,8 +24,15 @@ public class GmailEmailProvider implements EmailProvider {
         helper.setTo(to);
         helper.setSubject(subject);
         helper.setText(htmlContent, true);
-        
-        mailSender.send(message);
+
+        if (!transportPool.isEnabled()) {
+            mailSender.send(message);
+            return;
+        }
+        // Lo que hace JavaMailSender antes de Transport.sendMessage
+        message.setSentDate(new Date());
+        message.saveChanges();
+        transportPool.send(message);
     }
 
     @Override
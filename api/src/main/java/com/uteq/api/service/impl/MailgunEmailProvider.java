@@ -3,15 +3,16 @@ package com.uteq.api.service.impl;
 import com.uteq.api.service.EmailProvider;
 import okhttp3.*;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
 
 import java.util.concurrent.TimeUnit;
 
 @Service
-@ConditionalOnProperty(name = "mail.provider", havingValue = "MAILGUN")
 public class MailgunEmailProvider implements EmailProvider {
 
+    @Value("${mailgun.api.base-url:https://api.mailgun.net/v3}")
+    private String baseUrl;
+
     @Value("${mailgun.api.key}")
     private String apiKey;
 
@@ -36,8 +37,6 @@ public class MailgunEmailProvider implements EmailProvider {
 
     @Override
     public void sendEmail(String to, String subject, String htmlContent) throws Exception {
-        String url = String.format("https://api.mailgun.net/v3/%s/messages", domain);
-        
         RequestBody formBody = new MultipartBody.Builder()
                 .setType(MultipartBody.FORM)
                 .addFormDataPart("from", String.format("%s <%s>", fromName, fromEmail))
@@ -46,8 +45,12 @@ public class MailgunEmailProvider implements EmailProvider {
                 .addFormDataPart("html", htmlContent)
                 .build();
 
+        post(formBody);
+    }
+
+    private void post(RequestBody formBody) throws Exception {
         Request request = new Request.Builder()
-                .url(url)
+                .url(String.format("%s/%s/messages", baseUrl, domain))
                 .header("Authorization", Credentials.basic("api", apiKey))
                 .post(formBody)
                 .build();
@@ -0,0 +1,228 @@
+package com.uteq.api.service.impl;
+
+import com.uteq.api.service.CircuitBreaker;
+import com.uteq.api.service.EmailProvider;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EmailProvider que reparte los envíos entre Gmail y Mailgun según su salud.
+ *
+ * - Por proveedor se guardan las últimas health-window muestras (latencia y
+ * éxito); los proveedores se prueban ordenados por puntaje = latencia media *
+ * (1 + error-penalty * tasa de error). En empate manda el orden de
+ * mail.routing.providers; un proveedor sin muestras cuenta con
+ * assumed-latency-ms.
+ * - Failover en el mismo intento: si un proveedor falla, el email se envía por
+ * el siguiente antes de informar el error.
+ * - Límite de concurrencia por proveedor (semáforo) para que uno lento no
+ * acapare los hilos, y circuit breaker para dejar de probar uno caído.
+ */
+@Service
+@Primary
+@Slf4j
+public class RoutingEmailProvider implements EmailProvider {
+
+    private final GmailEmailProvider gmailEmailProvider;
+    private final MailgunEmailProvider mailgunEmailProvider;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mail.routing.providers}")
+    private List<String> providerNames;
+
+    @Value("${mail.routing.max-concurrent-per-provider:8}")
+    private int maxConcurrentPerProvider;
+
+    @Value("${mail.routing.acquire-timeout-ms:2000}")
+    private long acquireTimeoutMs;
+
+    @Value("${mail.routing.health-window:50}")
+    private int healthWindow;
+
+    @Value("${mail.routing.error-penalty:10}")
+    private double errorPenalty;
+
+    /**
+     * Latencia supuesta de un proveedor sin muestras: el de respaldo solo toma
+     * el tráfico cuando el preferido se degrada por encima de este valor.
+     */
+    @Value("${mail.routing.assumed-latency-ms:1000}")
+    private double assumedLatencyMs;
+
+    @Value("${mail.routing.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${mail.routing.circuit.open-seconds:60}")
+    private long openSeconds;
+
+    private List<Route> routes;
+    private Counter failoverCounter;
+
+    public RoutingEmailProvider(
+            GmailEmailProvider gmailEmailProvider,
+            MailgunEmailProvider mailgunEmailProvider,
+            MeterRegistry meterRegistry) {
+        this.gmailEmailProvider = gmailEmailProvider;
+        this.mailgunEmailProvider = mailgunEmailProvider;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @PostConstruct
+    void init() {
+        routes = new ArrayList<>();
+        for (String name : providerNames) {
+            EmailProvider provider = switch (name.trim().toUpperCase(Locale.ROOT)) {
+                case "GMAIL" -> gmailEmailProvider;
+                case "MAILGUN" -> mailgunEmailProvider;
+                default -> throw new IllegalStateException("Proveedor de email desconocido: " + name);
+            };
+            Route route = new Route(provider, routes.size(), new Semaphore(maxConcurrentPerProvider),
+                    new CircuitBreaker(failureThreshold, TimeUnit.SECONDS.toMillis(openSeconds)),
+                    new HealthWindow(healthWindow));
+            routes.add(route);
+
+            Gauge.builder("mail.routing.error-rate", route.health(), HealthWindow::errorRate)
+                    .tag("provider", provider.getProviderName())
+                    .register(meterRegistry);
+            Gauge.builder("mail.routing.latency.mean", route.health(), HealthWindow::meanLatencyMillis)
+                    .tag("provider", provider.getProviderName())
+                    .baseUnit("milliseconds")
+                    .register(meterRegistry);
+        }
+        if (routes.isEmpty()) {
+            throw new IllegalStateException("mail.routing.providers no puede estar vacío");
+        }
+        failoverCounter = Counter.builder("mail.routing.failover")
+                .description("Envíos que tuvieron que pasar a otro proveedor")
+                .register(meterRegistry);
+        log.info("Ruteo de email entre: {}", routes.stream().map(route -> route.provider().getProviderName()).toList());
+    }
+
+    @Override
+    public void sendEmail(String to, String subject, String htmlContent) throws Exception {
+        Exception lastError = null;
+        for (Route route : rankedRoutes()) {
+            if (!route.limiter().tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS)) {
+                lastError = new IllegalStateException(route.provider().getProviderName() + " saturado");
+                continue;
+            }
+            try {
+                if (!route.breaker().tryAcquire()) {
+                    lastError = new IllegalStateException(route.provider().getProviderName() + " con circuito abierto");
+                    continue;
+                }
+                if (lastError != null) {
+                    failoverCounter.increment();
+                }
+
+                long start = System.nanoTime();
+                try {
+                    route.provider().sendEmail(to, subject, htmlContent);
+                    route.health().record(System.nanoTime() - start, true);
+                    route.breaker().recordSuccess();
+                    return;
+                } catch (Exception e) {
+                    route.health().record(System.nanoTime() - start, false);
+                    route.breaker().recordFailure();
+                    log.warn("Envío por {} falló, se intenta otro proveedor: {}",
+                            route.provider().getProviderName(), e.getMessage());
+                    lastError = e;
+                }
+            } finally {
+                route.limiter().release();
+            }
+        }
+        throw lastError != null ? lastError : new IllegalStateException("Ningún proveedor de email disponible");
+    }
+
+    @Override
+    public String getProviderName() {
+        return "Routing";
+    }
+
+    /**
+     * Rutas ordenadas de más a menos sana.
+     */
+    private List<Route> rankedRoutes() {
+        List<Route> ranked = new ArrayList<>(routes);
+        Map<Route, Double> scores = new HashMap<>();
+        for (Route route : ranked) {
+            scores.put(route, route.health().score(errorPenalty, assumedLatencyMs));
+        }
+        ranked.sort(Comparator.comparingDouble((Route route) -> scores.get(route)).thenComparingInt(Route::order));
+        return ranked;
+    }
+
+    private record Route(EmailProvider provider, int order, Semaphore limiter, CircuitBreaker breaker,
+            HealthWindow health) {
+    }
+
+    /**
+     * Ventana circular con las últimas muestras de un proveedor.
+     */
+    private static final class HealthWindow {
+
+        private final long[] latencies;
+        private final boolean[] failures;
+        private int next;
+        private int count;
+        private long latencySum;
+        private int failureCount;
+
+        HealthWindow(int size) {
+            this.latencies = new long[size];
+            this.failures = new boolean[size];
+        }
+
+        synchronized void record(long latencyNanos, boolean success) {
+            if (count == latencies.length) {
+                latencySum -= latencies[next];
+                if (failures[next]) {
+                    failureCount--;
+                }
+            } else {
+                count++;
+            }
+            latencies[next] = latencyNanos;
+            failures[next] = !success;
+            latencySum += latencyNanos;
+            if (!success) {
+                failureCount++;
+            }
+            next = (next + 1) % latencies.length;
+        }
+
+        synchronized double errorRate() {
+            return count == 0 ? 0 : (double) failureCount / count;
+        }
+
+        synchronized double meanLatencyMillis() {
+            return count == 0 ? 0 : latencySum / 1_000_000.0 / count;
+        }
+
+        /**
+         * Menor es mejor. Sin muestras se usa la latencia supuesta.
+         */
+        synchronized double score(double errorPenalty, double assumedLatencyMs) {
+            if (count == 0) {
+                return assumedLatencyMs;
+            }
+            return meanLatencyMillis() * (1 + errorPenalty * errorRate());
+        }
+    }
+}
@@ -0,0 +1,306 @@
+package com.uteq.api.service.impl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Pool de conexiones SMTP autenticadas para GmailEmailProvider.
+ *
+ * JavaMailSender.send abre una conexión, hace STARTTLS y AUTH por cada email.
+ * Aquí las conexiones se reutilizan entre envíos:
+ * - Como mucho max-connections conexiones a la vez; las libres se guardan en
+ * orden LIFO para reutilizar siempre la más caliente.
+ * - Una conexión libre más de validate-after-seconds se comprueba (NOOP)
+ * antes de usarla; un evictor cierra las que superan idle-timeout-seconds.
+ * - Si una conexión se rompe durante un lote, el lote sigue por una nueva y
+ * el email afectado se reintenta una vez.
+ * - Los emails que llegan a la vez se encolan: el hilo que consigue una
+ * conexión envía hasta max-batch-size pendientes seguidos por ella, y el
+ * resto de hilos solo espera su resultado.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SmtpTransportPool {
+
+    /**
+     * Intentos por email si la conexión se rompe durante el envío
+     */
+    private static final int MAX_SEND_ATTEMPTS = 2;
+
+    private final JavaMailSender mailSender;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${mail.smtp-pool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${mail.smtp-pool.max-connections:4}")
+    private int maxConnections;
+
+    @Value("${mail.smtp-pool.max-batch-size:20}")
+    private int maxBatchSize;
+
+    @Value("${mail.smtp-pool.idle-timeout-seconds:60}")
+    private long idleTimeoutSeconds;
+
+    @Value("${mail.smtp-pool.validate-after-seconds:10}")
+    private long validateAfterSeconds;
+
+    @Value("${mail.smtp-pool.send-timeout-ms:30000}")
+    private long sendTimeoutMs;
+
+    private final LinkedBlockingDeque<PendingMessage> pending = new LinkedBlockingDeque<>();
+    private final LinkedBlockingDeque<PooledTransport> idleTransports = new LinkedBlockingDeque<>();
+
+    private JavaMailSenderImpl sender;
+    private Semaphore permits;
+    private ScheduledExecutorService evictor;
+    private Counter openedCounter;
+    private Counter discardedCounter;
+    private DistributionSummary batchSizeSummary;
+
+    @PostConstruct
+    void init() {
+        if (!(mailSender instanceof JavaMailSenderImpl impl)) {
+            enabled = false;
+        } else {
+            sender = impl;
+        }
+        if (!enabled) {
+            return;
+        }
+        permits = new Semaphore(maxConnections);
+
+        evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        evictor.scheduleWithFixedDelay(this::evictIdle, idleTimeoutSeconds, idleTimeoutSeconds, TimeUnit.SECONDS);
+
+        Gauge.builder("mail.smtp.pool.idle", idleTransports, LinkedBlockingDeque::size)
+                .description("Conexiones SMTP libres en el pool")
+                .register(meterRegistry);
+        openedCounter = Counter.builder("mail.smtp.pool.opened")
+                .description("Conexiones SMTP abiertas (STARTTLS + AUTH)")
+                .register(meterRegistry);
+        discardedCounter = Counter.builder("mail.smtp.pool.discarded")
+                .description("Conexiones SMTP cerradas por inactividad, por fallar la comprobación o por romperse en un envío")
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("mail.smtp.batch.size")
+                .description("Emails enviados seguidos por una misma conexión")
+                .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Envía un email por una conexión del pool, posiblemente dentro del lote
+     * de otro hilo. Bloquea hasta conocer el resultado.
+     *
+     * @throws MessagingException si el servidor lo rechaza, falla la conexión
+     *                            o se agota send-timeout-ms esperando conexión
+     */
+    public void send(MimeMessage message) throws MessagingException, InterruptedException {
+        PendingMessage entry = new PendingMessage(message, new CompletableFuture<>());
+        pending.add(entry);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(sendTimeoutMs);
+
+        try {
+            while (!entry.result().isDone()) {
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0) {
+                    if (pending.remove(entry)) {
+                        throw new MessagingException("Tiempo de espera agotado esperando una conexión SMTP");
+                    }
+                    // Ya está en el lote de otro hilo: lo acotan los timeouts SMTP
+                    break;
+                }
+                if (permits.tryAcquire(remaining, TimeUnit.NANOSECONDS)) {
+                    boolean sentBatch;
+                    try {
+                        sentBatch = drainAndSend();
+                    } finally {
+                        permits.release();
+                    }
+                    if (sentBatch) {
+                        continue;
+                    }
+                }
+                // Otro hilo tomó el email en su lote
+                try {
+                    entry.result().get(Math.max(deadline - System.nanoTime(), 1), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException | ExecutionException ignored) {
+                    // El resultado se lee abajo
+                }
+            }
+        } catch (InterruptedException e) {
+            pending.remove(entry);
+            throw e;
+        }
+
+        try {
+            entry.result().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof MessagingException messagingException) {
+                throw messagingException;
+            }
+            throw new MessagingException(String.valueOf(e.getCause().getMessage()), (Exception) e.getCause());
+        }
+    }
+
+    /**
+     * Toma hasta max-batch-size emails pendientes y los envía por una misma
+     * conexión. Se llama con un permiso del semáforo.
+     *
+     * Si la conexión se rompe a mitad del lote se descarta, se abre otra y el
+     * lote sigue por ella; el email que falló se reintenta una vez. Ningún
+     * email vuelve a la cola, así que quien lo espera recibe siempre el
+     * resultado de este lote.
+     *
+     * @return false si no había nada pendiente
+     */
+    private boolean drainAndSend() {
+        List<PendingMessage> batch = new ArrayList<>(maxBatchSize);
+        pending.drainTo(batch, maxBatchSize);
+        if (batch.isEmpty()) {
+            return false;
+        }
+
+        PooledTransport transport = null;
+        boolean reconnect = false;
+        int sent = 0;
+        try {
+            for (PendingMessage entry : batch) {
+                for (int attempt = 1; ; attempt++) {
+                    if (transport == null) {
+                        // Tras una conexión rota no se confía en las libres: se abre una nueva
+                        transport = reconnect ? connect() : borrow();
+                    }
+                    try {
+                        MimeMessage message = entry.message();
+                        transport.transport().sendMessage(message, message.getAllRecipients());
+                        entry.result().complete(null);
+                        sent++;
+                        break;
+                    } catch (SendFailedException e) {
+                        // Destinatario rechazado: la conexión sigue sirviendo
+                        entry.result().completeExceptionally(e);
+                        break;
+                    } catch (MessagingException | RuntimeException e) {
+                        discard(transport);
+                        transport = null;
+                        reconnect = true;
+                        if (attempt >= MAX_SEND_ATTEMPTS) {
+                            entry.result().completeExceptionally(e);
+                            break;
+                        }
+                        log.debug("Conexión SMTP rota, se reintenta por otra: {}", e.getMessage());
+                    }
+                }
+            }
+        } catch (MessagingException e) {
+            // No se pudo abrir conexión: fallan los que quedan sin enviar
+            batch.forEach(entry -> entry.result().completeExceptionally(e));
+        }
+        batchSizeSummary.record(sent);
+
+        if (transport != null) {
+            idleTransports.addFirst(new PooledTransport(transport.transport(), System.nanoTime()));
+        }
+        return true;
+    }
+
+    private PooledTransport borrow() throws MessagingException {
+        PooledTransport idle;
+        while ((idle = idleTransports.pollFirst()) != null) {
+            long idleNanos = System.nanoTime() - idle.lastUsedNanos();
+            if (idleNanos > TimeUnit.SECONDS.toNanos(idleTimeoutSeconds)) {
+                discard(idle);
+            } else if (idleNanos > TimeUnit.SECONDS.toNanos(validateAfterSeconds)
+                    && !idle.transport().isConnected()) {
+                // isConnected envía NOOP en SMTP
+                discard(idle);
+            } else {
+                return idle;
+            }
+        }
+        return connect();
+    }
+
+    private PooledTransport connect() throws MessagingException {
+        String protocol = sender.getProtocol() != null ? sender.getProtocol() : "smtp";
+        Transport transport = sender.getSession().getTransport(protocol);
+        transport.connect(sender.getHost(), sender.getPort(), sender.getUsername(), sender.getPassword());
+        openedCounter.increment();
+        return new PooledTransport(transport, System.nanoTime());
+    }
+
+    private void discard(PooledTransport pooled) {
+        discardedCounter.increment();
+        try {
+            pooled.transport().close();
+        } catch (MessagingException e) {
+            log.debug("Error cerrando conexión SMTP: {}", e.getMessage());
+        }
+    }
+
+    private void evictIdle() {
+        long limit = TimeUnit.SECONDS.toNanos(idleTimeoutSeconds);
+        long now = System.nanoTime();
+        // Las más frías quedan al final
+        Iterator<PooledTransport> iterator = idleTransports.descendingIterator();
+        while (iterator.hasNext()) {
+            PooledTransport pooled = iterator.next();
+            if (now - pooled.lastUsedNanos() > limit && idleTransports.remove(pooled)) {
+                discard(pooled);
+            }
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (evictor != null) {
+            evictor.shutdownNow();
+        }
+        PooledTransport pooled;
+        while ((pooled = idleTransports.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    private record PendingMessage(MimeMessage message, CompletableFuture<Void> result) {
+    }
+
+    private record PooledTransport(Transport transport, long lastUsedNanos) {
+    }
+}
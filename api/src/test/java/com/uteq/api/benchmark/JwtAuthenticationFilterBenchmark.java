@@ -0,0 +1,121 @@
+package com.uteq.api.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uteq.api.config.JwtAuthenticationFilter;
+import com.uteq.api.config.JwtConfig;
+import com.uteq.api.service.JwtService;
+import com.uteq.api.service.SessionRevocationService;
+import com.uteq.api.service.VerifiedTokenCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Costo por petición de JwtAuthenticationFilter, con JwtService y
+ * VerifiedTokenCache reales:
+ * - baseline: solo crear la petición y pasar por la cadena, sin filtro.
+ * - publicRoute: ruta sin token (shouldNotFilter).
+ * - protectedCachedToken: ruta protegida con un token ya en la caché.
+ * - protectedDenormalizedPath: igual, pero con un path que hay que decodificar
+ * y normalizar.
+ * El sobrecosto del filtro es la diferencia con baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JwtAuthenticationFilterBenchmark {
+
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Setup
+    public void setUp() throws Exception {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+        JwtConfig jwtConfig = new JwtConfig();
+        ReflectionTestUtils.setField(jwtConfig, "secret", "benchmark-secret-benchmark-secret-benchmark-secret");
+        ReflectionTestUtils.setField(jwtConfig, "expiration", TimeUnit.HOURS.toMillis(1));
+        ReflectionTestUtils.setField(jwtConfig, "refreshExpiration", TimeUnit.DAYS.toMillis(7));
+        ReflectionTestUtils.setField(jwtConfig, "algorithm", "HS256");
+
+        VerifiedTokenCache cache = new VerifiedTokenCache(meterRegistry);
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 50_000);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 300L);
+        ReflectionTestUtils.invokeMethod(cache, "init");
+
+        // Sin listener: solo se consulta el conjunto en memoria de sesiones revocadas
+        SessionRevocationService revocation = new SessionRevocationService(null, jwtConfig, cache, meterRegistry);
+
+        JwtService jwtService = new JwtService(jwtConfig, cache, revocation);
+        ReflectionTestUtils.invokeMethod(jwtService, "init");
+
+        filter = new JwtAuthenticationFilter(
+                jwtService,
+                new ObjectMapper(),
+                meterRegistry,
+                List.of("/api/users", "/api/sessions", "/api/reset-password", "/api/templates",
+                        "/api/countries", "/api/admin"),
+                List.of("GET /api/countries"));
+
+        String token = jwtService.generateToken(UUID.randomUUID(), "usuario@uteq.edu.ec", "usuario", UUID.randomUUID());
+        authorization = "Bearer " + token;
+        jwtService.verifyToken(token);
+    }
+
+    @Benchmark
+    public Object baseline() throws Exception {
+        MockHttpServletRequest request = request("/api/users/123");
+        new MockFilterChain().doFilter(request, new MockHttpServletResponse());
+        return request;
+    }
+
+    @Benchmark
+    public Object publicRoute() throws Exception {
+        return filter("GET", "/api/countries/5", null);
+    }
+
+    @Benchmark
+    public Object protectedCachedToken() throws Exception {
+        return filter("GET", "/api/users/123", authorization);
+    }
+
+    @Benchmark
+    public Object protectedDenormalizedPath() throws Exception {
+        return filter("GET", "/api/./users//%31%32%33", authorization);
+    }
+
+    private MockHttpServletResponse filter(String method, String uri, String header) throws Exception {
+        MockHttpServletRequest request = request(uri);
+        request.setMethod(method);
+        if (header != null) {
+            request.addHeader("Authorization", header);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String uri) {
+        return new MockHttpServletRequest("GET", uri);
+    }
+}
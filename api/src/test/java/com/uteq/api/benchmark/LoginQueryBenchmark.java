@@ -0,0 +1,114 @@
+package com.uteq.api.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tiempo de BD de un login BCrypt correcto (sin el hash en Java), contra una
+ * PostgreSQL real con el esquema de uteq_web_bd:
+ * - twoRoundTrips: como AuthService antes, consulta del hash y después el SP.
+ * - oneRoundTrip: SQL_LOGIN_LOOKUP actual, hash y SP en la misma sentencia.
+ *
+ * Cada invocación se revierte, así que no quedan sesiones creadas. Requiere
+ * un usuario BCrypt existente:
+ *
+ * <pre>
+ * -Dexec.args="-Dbench.jdbc.url=jdbc:postgresql://localhost:5432/uteq_web_bd
+ *     -Dbench.jdbc.user=... -Dbench.jdbc.password=... -Dbench.login.username=...
+ *     -cp %classpath org.openjdk.jmh.Main LoginQueryBenchmark"
+ * </pre>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LoginQueryBenchmark {
+
+    private static final String SQL_PASSWORD =
+            "SELECT password FROM pl_user WHERE username = ?";
+
+    private static final String SQL_PROCEDURE =
+            "SELECT CAST(us_check_information_user_for_login(?, ?) AS TEXT)";
+
+    private static final String SQL_LOGIN_LOOKUP =
+            "SELECT u.password, " +
+            "CAST(us_check_information_user_for_login(?, " +
+            "CASE WHEN LEFT(u.password, 4) IN ('$2a$', '$2b$', '$2y$') THEN u.password ELSE ? END" +
+            ") AS TEXT) " +
+            "FROM (SELECT 1) AS one " +
+            "LEFT JOIN pl_user u ON u.username = ?";
+
+    private Connection connection;
+    private String username;
+
+    @Setup
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection(
+                System.getProperty("bench.jdbc.url", "jdbc:postgresql://localhost:5432/uteq_web_bd"),
+                System.getProperty("bench.jdbc.user", "postgres"),
+                System.getProperty("bench.jdbc.password", ""));
+        connection.setAutoCommit(false);
+        username = System.getProperty("bench.login.username", "usuario");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        connection.close();
+    }
+
+    @Benchmark
+    public String twoRoundTrips() throws SQLException {
+        try {
+            String hash;
+            try (PreparedStatement statement = connection.prepareStatement(SQL_PASSWORD)) {
+                statement.setString(1, username);
+                try (ResultSet rs = statement.executeQuery()) {
+                    hash = rs.next() ? rs.getString(1) : null;
+                }
+            }
+            try (PreparedStatement statement = connection.prepareStatement(SQL_PROCEDURE)) {
+                statement.setString(1, username);
+                statement.setString(2, hash);
+                try (ResultSet rs = statement.executeQuery()) {
+                    rs.next();
+                    return rs.getString(1);
+                }
+            }
+        } finally {
+            connection.rollback();
+        }
+    }
+
+    @Benchmark
+    public String oneRoundTrip() throws SQLException {
+        try (PreparedStatement statement = connection.prepareStatement(SQL_LOGIN_LOOKUP)) {
+            statement.setString(1, username);
+            statement.setString(2, "no-usada-con-bcrypt");
+            statement.setString(3, username);
+            try (ResultSet rs = statement.executeQuery()) {
+                rs.next();
+                return rs.getString(2);
+            }
+        } finally {
+            connection.rollback();
+        }
+    }
+}
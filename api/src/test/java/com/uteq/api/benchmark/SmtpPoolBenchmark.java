@@ -0,0 +1,160 @@
+package com.uteq.api.benchmark;
+
+import com.uteq.api.service.impl.GmailEmailProvider;
+import com.uteq.api.service.impl.SmtpTransportPool;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Emails por segundo contra un servidor SMTP mínimo en local (sin TLS ni
+ * AUTH; HANDSHAKE_DELAY_MS simula su coste al abrir cada conexión):
+ * - perMessage: mail.smtp-pool.enabled=false, JavaMailSender.send abre y
+ * cierra una conexión por email, como antes.
+ * - pooled: SmtpTransportPool, conexiones reutilizadas y envío en lotes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(8)
+public class SmtpPoolBenchmark {
+
+    private static final long HANDSHAKE_DELAY_MS = 20;
+
+    private static final String HTML = "<html><body><p>Código de recuperación: 123456</p></body></html>";
+
+    private ServerSocket serverSocket;
+    private ExecutorService serverExecutor;
+    private SmtpTransportPool pool;
+    private GmailEmailProvider perMessageProvider;
+    private GmailEmailProvider pooledProvider;
+
+    @Setup
+    public void setUp() throws Exception {
+        serverSocket = new ServerSocket(0, 128, InetAddress.getLoopbackAddress());
+        serverExecutor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "smtp-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        serverExecutor.execute(this::acceptLoop);
+
+        JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
+        mailSender.setHost("127.0.0.1");
+        mailSender.setPort(serverSocket.getLocalPort());
+        mailSender.getJavaMailProperties().setProperty("mail.smtp.from", "no-reply@uteq.edu.ec");
+
+        SmtpTransportPool disabledPool = newPool(mailSender, false);
+        perMessageProvider = new GmailEmailProvider(mailSender, disabledPool);
+
+        pool = newPool(mailSender, true);
+        pooledProvider = new GmailEmailProvider(mailSender, pool);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        ReflectionTestUtils.invokeMethod(pool, "shutdown");
+        serverSocket.close();
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public void perMessage() throws Exception {
+        perMessageProvider.sendEmail("usuario@uteq.edu.ec", "Recuperación de contraseña", HTML);
+    }
+
+    @Benchmark
+    public void pooled() throws Exception {
+        pooledProvider.sendEmail("usuario@uteq.edu.ec", "Recuperación de contraseña", HTML);
+    }
+
+    private static SmtpTransportPool newPool(JavaMailSenderImpl mailSender, boolean enabled) {
+        SmtpTransportPool pool = new SmtpTransportPool(mailSender, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(pool, "enabled", enabled);
+        ReflectionTestUtils.setField(pool, "maxConnections", 4);
+        ReflectionTestUtils.setField(pool, "maxBatchSize", 20);
+        ReflectionTestUtils.setField(pool, "idleTimeoutSeconds", 60L);
+        ReflectionTestUtils.setField(pool, "validateAfterSeconds", 10L);
+        ReflectionTestUtils.setField(pool, "sendTimeoutMs", 30_000L);
+        ReflectionTestUtils.invokeMethod(pool, "init");
+        return pool;
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                serverExecutor.execute(() -> serve(socket));
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Lo justo del protocolo para JavaMail: acepta todo y descarta el DATA.
+     */
+    private static void serve(Socket socket) {
+        try (socket;
+             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+             OutputStream out = socket.getOutputStream()) {
+            Thread.sleep(HANDSHAKE_DELAY_MS);
+            reply(out, "220 localhost ESMTP");
+
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.length() >= 4 ? line.substring(0, 4).toUpperCase(Locale.ROOT) : line;
+                switch (command) {
+                    case "EHLO", "HELO" -> reply(out, "250 localhost");
+                    case "DATA" -> {
+                        reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                        while ((line = in.readLine()) != null && !line.equals(".")) {
+                            // Se descarta el cuerpo
+                        }
+                        reply(out, "250 OK");
+                    }
+                    case "QUIT" -> {
+                        reply(out, "221 Bye");
+                        return;
+                    }
+                    default -> reply(out, "250 OK");
+                }
+            }
+        } catch (IOException | InterruptedException e) {
+            // Conexión cerrada por el cliente o por tearDown
+        }
+    }
+
+    private static void reply(OutputStream out, String line) throws IOException {
+        out.write((line + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        out.flush();
+    }
+}
@@ -0,0 +1,14 @@
+/**
+ * Microbenchmarks JMH. No se ejecutan con mvn test (no terminan en Test).
+ *
+ * Ejecución desde api/, con el nombre (o una expresión regular) del benchmark:
+ *
+ * <pre>
+ * mvn -q test-compile exec:exec -Dexec.executable=java -Dexec.classpathScope=test \
+ *     -Dexec.args="-cp %classpath org.openjdk.jmh.Main JwtParserBenchmark"
+ * </pre>
+ *
+ * Cada benchmark compara la implementación actual con la anterior dentro de
+ * la misma ejecución, así que los resultados solo son comparables entre sí.
+ */
+package com.uteq.api.benchmark;
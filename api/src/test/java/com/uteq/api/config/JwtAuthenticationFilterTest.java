@@ -0,0 +1,173 @@
+package com.uteq.api.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uteq.api.service.JwtService;
+import com.uteq.api.service.TokenClaims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.ServletRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class JwtAuthenticationFilterTest {
+
+    private static final String ACCESS_TOKEN = "access";
+    private static final String REFRESH_TOKEN = "refresh";
+
+    private JwtAuthenticationFilter filter;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JwtService jwtService = mock(JwtService.class);
+        when(jwtService.verifyToken(anyString())).thenReturn(Optional.empty());
+        when(jwtService.verifyToken(ACCESS_TOKEN)).thenReturn(Optional.of(claims(null)));
+        when(jwtService.verifyToken(REFRESH_TOKEN)).thenReturn(Optional.of(claims("refresh")));
+
+        filter = new JwtAuthenticationFilter(
+                jwtService,
+                new ObjectMapper(),
+                new SimpleMeterRegistry(),
+                List.of("/api/users", "/api/countries", "/api/admin/"),
+                List.of("GET /api/countries"));
+    }
+
+    @Test
+    void protectedRouteWithoutTokenIsRejected() throws Exception {
+        Result result = send("GET", "/api/users", null);
+
+        assertEquals(401, result.status());
+        assertTrue(result.body().contains("TKNREQ"));
+        assertNull(result.passedRequest());
+    }
+
+    @Test
+    void protectedRouteWithAccessTokenPassesClaims() throws Exception {
+        Result result = send("GET", "/api/users/123", ACCESS_TOKEN);
+
+        assertEquals(200, result.status());
+        assertNotNull(result.passedRequest());
+        assertNotNull(result.passedRequest().getAttribute(JwtAuthenticationFilter.CLAIMS_ATTRIBUTE));
+    }
+
+    @Test
+    void refreshTokenIsNotAnAccessToken() throws Exception {
+        Result result = send("GET", "/api/users", REFRESH_TOKEN);
+
+        assertEquals(401, result.status());
+        assertTrue(result.body().contains("TKNINV"));
+    }
+
+    @Test
+    void publicRouteOnlyAppliesToItsMethod() throws Exception {
+        assertNotNull(send("GET", "/api/countries/5", null).passedRequest());
+        assertEquals(401, send("POST", "/api/countries", null).status());
+    }
+
+    @Test
+    void prefixOnlyMatchesWholeSegments() throws Exception {
+        assertNotNull(send("GET", "/api/usersettings", null).passedRequest());
+        assertEquals(401, send("GET", "/api/admin", null).status());
+    }
+
+    @Test
+    void contextPathIsIgnored() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ctx/api/users");
+        request.setContextPath("/ctx");
+
+        assertEquals(401, send(request).status());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/api/%75sers",
+            "/API/../api/users",
+            "/api/countries/../users",
+            "/api/%2e%2e/api/users",
+            "//api/users",
+            "/api/./users/",
+            "/api//users"
+    })
+    void encodedOrDenormalizedPathsAreStillProtected(String uri) throws Exception {
+        Result result = send("GET", uri, null);
+
+        assertEquals(401, result.status());
+        assertNull(result.passedRequest());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+            "/api/users;jsessionid=1",
+            "/api/countries;/../users",
+            "/api/users%3Bx",
+            "/api/countries%2F..%2Fusers",
+            "/api/countries%5C..%5Cusers",
+            "/api/%2575sers",
+            "/api/countries\\..\\users",
+            "/../api/users",
+            "/public;x=1"
+    })
+    void ambiguousPathsAreRejectedEverywhere(String uri) throws Exception {
+        Result result = send("GET", uri, ACCESS_TOKEN);
+
+        assertEquals(400, result.status());
+        assertTrue(result.body().contains("PTHNVD"));
+        assertNull(result.passedRequest());
+    }
+
+    @Test
+    void unprotectedRoutesPassWithoutToken() throws Exception {
+        assertNotNull(send("POST", "/api/auth/login", null).passedRequest());
+        assertNotNull(send("OPTIONS", "/api/users", null).passedRequest());
+    }
+
+    @Test
+    void normalizedPathKeepsCleanPathsAsIs() {
+        String uri = "/api/users/123";
+
+        assertSame(uri, JwtAuthenticationFilter.normalizedPath(uri, 0));
+        assertEquals("/api/users", JwtAuthenticationFilter.normalizedPath("/api/x/../users/.", 0));
+        assertNull(JwtAuthenticationFilter.normalizedPath("/api/%zz", 0));
+    }
+
+    private Result send(String method, String uri, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (token != null) {
+            request.addHeader("Authorization", "Bearer " + token);
+        }
+        return send(request);
+    }
+
+    private Result send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        return new Result(response.getStatus(), response.getContentAsString(), chain.getRequest());
+    }
+
+    private static TokenClaims claims(String type) {
+        Instant now = Instant.now();
+        return new TokenClaims(UUID.randomUUID(), UUID.randomUUID(), "usuario@uteq.edu.ec", "usuario", type,
+                now, now.plusSeconds(3600), 0);
+    }
+
+    private record Result(int status, String body, ServletRequest passedRequest) {
+    }
+}
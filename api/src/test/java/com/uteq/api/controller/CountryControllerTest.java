@@ -0,0 +1,77 @@
+package com.uteq.api.controller;
+
+import com.uteq.api.service.CountryService;
+import com.uteq.api.service.CountrySnapshot;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CountryControllerTest {
+
+    private static final byte[] LIST_JSON = "[{\"idCountry\":1}]".getBytes(StandardCharsets.UTF_8);
+    private static final String LIST_ETAG = "\"00112233445566778899aabbccddeeff\"";
+    private static final String COUNTRY_ETAG = "\"ffeeddccbbaa99887766554433221100\"";
+
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        CountrySnapshot snapshot = mock(CountrySnapshot.class);
+        when(snapshot.json()).thenReturn(LIST_JSON);
+        when(snapshot.etag()).thenReturn(LIST_ETAG);
+        when(snapshot.findById(1)).thenReturn(Optional.of(
+                new CountrySnapshot.Entry(null, "{\"idCountry\":1}".getBytes(StandardCharsets.UTF_8), COUNTRY_ETAG)));
+        when(snapshot.findById(9)).thenReturn(Optional.empty());
+
+        CountryService countryService = mock(CountryService.class);
+        when(countryService.snapshot()).thenReturn(snapshot);
+
+        mockMvc = MockMvcBuilders.standaloneSetup(new CountryController(countryService)).build();
+    }
+
+    @Test
+    void listCarriesETagAndRevalidationHeaders() throws Exception {
+        mockMvc.perform(get("/api/countries"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", LIST_ETAG))
+                .andExpect(header().string("Cache-Control", "no-cache"))
+                .andExpect(content().bytes(LIST_JSON));
+    }
+
+    @Test
+    void matchingIfNoneMatchGetsNotModifiedWithoutBody() throws Exception {
+        mockMvc.perform(get("/api/countries").header("If-None-Match", LIST_ETAG))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", LIST_ETAG))
+                .andExpect(content().bytes(new byte[0]));
+    }
+
+    @Test
+    void staleIfNoneMatchGetsTheFullBody() throws Exception {
+        mockMvc.perform(get("/api/countries").header("If-None-Match", COUNTRY_ETAG))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(LIST_JSON));
+    }
+
+    @Test
+    void singleCountryHasItsOwnETag() throws Exception {
+        mockMvc.perform(get("/api/countries/1").header("If-None-Match", COUNTRY_ETAG))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/api/countries/1").header("If-None-Match", LIST_ETAG))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", COUNTRY_ETAG));
+        mockMvc.perform(get("/api/countries/9"))
+                .andExpect(status().isNotFound());
+    }
+}
@@ -0,0 +1,89 @@
+package com.uteq.api.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uteq.api.dto.KeysetPage;
+import com.uteq.api.entity.User;
+import com.uteq.api.service.UserService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class UserControllerTest {
+
+    private static final UUID ID = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    private UserService userService;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        mockMvc = MockMvcBuilders.standaloneSetup(new UserController(userService, new ObjectMapper())).build();
+    }
+
+    @Test
+    void listWithoutParametersKeepsTheArrayShape() throws Exception {
+        when(userService.findAll()).thenReturn(List.of(user("$2a$10$hash")));
+
+        mockMvc.perform(get("/api/users"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].username").value("usuario"))
+                .andExpect(jsonPath("$[0].password").doesNotExist());
+    }
+
+    @Test
+    void listWithLimitReturnsAKeysetPage() throws Exception {
+        when(userService.findPage(null, 1)).thenReturn(new KeysetPage<>(List.of(user("$2a$10$hash")), ID.toString()));
+
+        mockMvc.perform(get("/api/users").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].username").value("usuario"))
+                .andExpect(jsonPath("$.nextCursor").value(ID.toString()));
+    }
+
+    @Test
+    void updateWithoutPasswordKeepsTheStoredHash() throws Exception {
+        when(userService.findById(ID)).thenReturn(Optional.of(user("$2a$10$hash")));
+        when(userService.save(any(User.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        mockMvc.perform(put("/api/users/{id}", ID)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"fullName\":\"Nombre Nuevo\",\"email\":\"nuevo@uteq.edu.ec\","
+                                + "\"username\":\"usuario\",\"isPassTemp\":false}"))
+                .andExpect(status().isOk());
+
+        ArgumentCaptor<User> saved = ArgumentCaptor.forClass(User.class);
+        verify(userService).save(saved.capture());
+        assertEquals("Nombre Nuevo", saved.getValue().getFullName());
+        assertEquals("$2a$10$hash", saved.getValue().getPassword());
+        assertEquals(ID, saved.getValue().getIdUser());
+    }
+
+    private static User user(String password) {
+        User user = new User();
+        user.setIdUser(ID);
+        user.setFullName("Usuario");
+        user.setEmail("usuario@uteq.edu.ec");
+        user.setUsername("usuario");
+        user.setPassword(password);
+        user.setIsPassTemp(false);
+        return user;
+    }
+}
@@ -0,0 +1,61 @@
+package com.uteq.api.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.uteq.api.entity.Country;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CountrySnapshotTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Test
+    void etagIsStableForTheSameData() {
+        CountrySnapshot first = CountrySnapshot.of(countries("Ecuador"), objectMapper);
+        CountrySnapshot second = CountrySnapshot.of(countries("Ecuador"), objectMapper);
+
+        assertEquals(first.etag(), second.etag());
+        assertEquals(first.findById(1).orElseThrow().etag(), second.findById(1).orElseThrow().etag());
+    }
+
+    @Test
+    void etagChangesWhenACountryChanges() {
+        CountrySnapshot before = CountrySnapshot.of(countries("Ecuador"), objectMapper);
+        CountrySnapshot after = CountrySnapshot.of(countries("República del Ecuador"), objectMapper);
+
+        assertNotEquals(before.etag(), after.etag());
+        assertNotEquals(before.findById(1).orElseThrow().etag(), after.findById(1).orElseThrow().etag());
+        // El resto de países conserva su ETag
+        assertEquals(before.findById(2).orElseThrow().etag(), after.findById(2).orElseThrow().etag());
+    }
+
+    @Test
+    void etagIsAQuotedStrongValidator() {
+        String etag = CountrySnapshot.of(countries("Ecuador"), objectMapper).etag();
+
+        assertTrue(etag.matches("\"[0-9a-f]{32}\""), etag);
+    }
+
+    @Test
+    void servesThePreSerializedJson() throws Exception {
+        List<Country> countries = countries("Ecuador");
+        CountrySnapshot snapshot = CountrySnapshot.of(countries, objectMapper);
+
+        assertArrayEquals(objectMapper.writeValueAsBytes(countries), snapshot.json());
+        assertArrayEquals(objectMapper.writeValueAsBytes(countries.get(0)),
+                snapshot.findByCodeAlpha2(" ec ").orElseThrow().json());
+        assertEquals(2, snapshot.findByCodeAlpha3("per").orElseThrow().country().getIdCountry());
+    }
+
+    private static List<Country> countries(String ecuadorName) {
+        return List.of(
+                new Country(1, "EC", "ECU", ecuadorName),
+                new Country(2, "PE", "PER", "Perú"));
+    }
+}
@@ -0,0 +1,138 @@
+package com.uteq.api.service;
+
+import com.uteq.api.dto.KeysetPage;
+import com.uteq.api.entity.ResetPass;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class KeysetReaderTest {
+
+    private static final String FETCH_JOINS = "JOIN FETCH e.user u";
+
+    private EntityManager entityManager;
+    private TypedQuery<ResetPass> query;
+    private KeysetReader reader;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        entityManager = mock(EntityManager.class);
+        query = mock(TypedQuery.class);
+        when(entityManager.createQuery(anyString(), eq(ResetPass.class))).thenReturn(query);
+        when(query.setMaxResults(anyInt())).thenReturn(query);
+        when(query.setParameter(anyString(), any())).thenReturn(query);
+        when(query.setHint(anyString(), any())).thenReturn(query);
+
+        reader = new KeysetReader(entityManager);
+        ReflectionTestUtils.setField(reader, "defaultLimit", 3);
+        ReflectionTestUtils.setField(reader, "maxLimit", 5);
+        ReflectionTestUtils.setField(reader, "fetchSize", 2);
+    }
+
+    @Test
+    void lastPageHasNoCursor() {
+        when(query.getResultList()).thenReturn(rows(1, 3));
+
+        KeysetPage<ResetPass> page = reader.page(ResetPass.class, FETCH_JOINS, "idReset", null, 3, ResetPass::getIdReset);
+
+        assertEquals(3, page.items().size());
+        assertNull(page.nextCursor());
+        verify(query).setMaxResults(4);
+    }
+
+    @Test
+    void cursorIsTheLastReturnedRowNotTheProbe() {
+        when(query.getResultList()).thenReturn(rows(1, 4));
+
+        KeysetPage<ResetPass> page = reader.page(ResetPass.class, FETCH_JOINS, "idReset", null, 3, ResetPass::getIdReset);
+
+        assertEquals(List.of(1, 2, 3), page.items().stream().map(ResetPass::getIdReset).toList());
+        assertEquals("3", page.nextCursor());
+    }
+
+    @Test
+    void afterStartsStrictlyPastTheCursor() {
+        when(query.getResultList()).thenReturn(rows(4, 5));
+
+        reader.page(ResetPass.class, FETCH_JOINS, "idReset", 3, 3, ResetPass::getIdReset);
+
+        verify(entityManager).createQuery(
+                "SELECT e FROM ResetPass e JOIN FETCH e.user u WHERE e.idReset > :after ORDER BY e.idReset",
+                ResetPass.class);
+        verify(query).setParameter("after", 3);
+    }
+
+    @Test
+    void firstPageHasNoWhereClause() {
+        when(query.getResultList()).thenReturn(List.of());
+
+        KeysetPage<ResetPass> page = reader.page(ResetPass.class, FETCH_JOINS, "idReset", null, null, ResetPass::getIdReset);
+
+        assertEquals(0, page.items().size());
+        assertNull(page.nextCursor());
+        verify(entityManager).createQuery("SELECT e FROM ResetPass e JOIN FETCH e.user u ORDER BY e.idReset",
+                ResetPass.class);
+        verify(query, never()).setParameter(anyString(), any());
+    }
+
+    @Test
+    void limitFallsBackToDefaultAndIsCappedAtMax() {
+        when(query.getResultList()).thenReturn(List.of());
+
+        reader.page(ResetPass.class, FETCH_JOINS, "idReset", null, 0, ResetPass::getIdReset);
+        verify(query).setMaxResults(4);
+
+        reader.page(ResetPass.class, FETCH_JOINS, "idReset", null, 50, ResetPass::getIdReset);
+        verify(query).setMaxResults(6);
+    }
+
+    @Test
+    void listReadsEveryRowWithoutLimit() {
+        when(query.getResultList()).thenReturn(rows(1, 5));
+
+        List<ResetPass> all = reader.list(ResetPass.class, FETCH_JOINS, "idReset");
+
+        assertEquals(5, all.size());
+        verify(query, never()).setMaxResults(anyInt());
+    }
+
+    @Test
+    void streamDeliversEveryRowAndClearsEachFetch() {
+        when(query.getResultStream()).thenReturn(rows(1, 5).stream());
+
+        List<Integer> seen = new ArrayList<>();
+        reader.stream(ResetPass.class, FETCH_JOINS, "idReset", null, row -> seen.add(row.getIdReset()));
+
+        assertEquals(List.of(1, 2, 3, 4, 5), seen);
+        verify(entityManager, times(2)).clear();
+    }
+
+    private static List<ResetPass> rows(int from, int to) {
+        return IntStream.rangeClosed(from, to)
+                .mapToObj(id -> {
+                    ResetPass row = new ResetPass();
+                    row.setIdReset(id);
+                    return row;
+                })
+                .toList();
+    }
+}
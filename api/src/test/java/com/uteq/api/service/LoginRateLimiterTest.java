@@ -0,0 +1,113 @@
+package com.uteq.api.service;
+
+import com.uteq.api.exception.TooManyRequestsException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LoginRateLimiterTest {
+
+    private static final long WINDOW_SECONDS = 60;
+
+    private SimpleMeterRegistry meterRegistry;
+    private LoginRateLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new LoginRateLimiter(meterRegistry);
+        ReflectionTestUtils.setField(limiter, "windowSeconds", WINDOW_SECONDS);
+        ReflectionTestUtils.setField(limiter, "maxFailuresPerUsername", 3);
+        ReflectionTestUtils.setField(limiter, "maxFailuresPerIp", 100);
+        ReflectionTestUtils.setField(limiter, "maxKeys", 10);
+        limiter.init();
+        at(0);
+    }
+
+    @AfterEach
+    void tearDown() {
+        limiter.shutdown();
+    }
+
+    @Test
+    void blocksUsernameAfterMaxFailures() {
+        for (int i = 0; i < 3; i++) {
+            limiter.checkAllowed("alice", "10.0.0.1");
+            limiter.recordFailure("alice", "10.0.0.1");
+        }
+
+        TooManyRequestsException e = assertThrows(TooManyRequestsException.class,
+                () -> limiter.checkAllowed("Alice ", "10.0.0.2"));
+        assertEquals("LGNLIM", e.getErrorCode());
+        assertDoesNotThrow(() -> limiter.checkAllowed("bob", "10.0.0.1"));
+    }
+
+    @Test
+    void previousWindowWeighsLessAsItSlidesOut() {
+        for (int i = 0; i < 3; i++) {
+            limiter.recordFailure("alice", "10.0.0.1");
+        }
+
+        // A mitad de la ventana siguiente cuentan 3 * 0.5 = 1.5 fallos
+        at(WINDOW_SECONDS * 1000 + WINDOW_SECONDS * 500);
+        assertDoesNotThrow(() -> limiter.checkAllowed("alice", "10.0.0.1"));
+        limiter.recordFailure("alice", "10.0.0.1");
+        limiter.recordFailure("alice", "10.0.0.1");
+        assertThrows(TooManyRequestsException.class, () -> limiter.checkAllowed("alice", "10.0.0.1"));
+
+        // Dos ventanas después ya no queda nada
+        at(WINDOW_SECONDS * 3000 + 1);
+        assertDoesNotThrow(() -> limiter.checkAllowed("alice", "10.0.0.1"));
+    }
+
+    @Test
+    void successClearsUsernameButNotIp() {
+        ReflectionTestUtils.setField(limiter, "maxFailuresPerIp", 3);
+        for (int i = 0; i < 3; i++) {
+            limiter.recordFailure("alice", "10.0.0.1");
+        }
+
+        limiter.recordSuccess("alice");
+
+        assertDoesNotThrow(() -> limiter.checkAllowed("alice", "10.0.0.2"));
+        assertThrows(TooManyRequestsException.class, () -> limiter.checkAllowed("alice", "10.0.0.1"));
+    }
+
+    @Test
+    void evictsOldestKeysInsteadOfFailingOpen() {
+        // La víctima es la clave más reciente; las de relleno son más antiguas
+        for (int i = 0; i < 5; i++) {
+            at(i);
+            limiter.recordFailure("filler" + i, null);
+        }
+        at(10);
+        for (int i = 0; i < 3; i++) {
+            limiter.recordFailure("alice", null);
+        }
+
+        // Una avalancha de claves nuevas supera max-keys
+        for (int i = 0; i < 20; i++) {
+            at(20 + i);
+            limiter.recordFailure("flood" + i, null);
+            limiter.recordFailure("alice", null);
+        }
+
+        assertThrows(TooManyRequestsException.class, () -> limiter.checkAllowed("alice", null));
+        assertEquals(16.0, meterRegistry.get("auth.login.rate-limit.evicted").counter().count());
+        assertEquals(10.0, meterRegistry.get("auth.login.rate-limit.keys").gauge().value());
+    }
+
+    private void at(long millis) {
+        ReflectionTestUtils.setField(limiter, "clock", Clock.fixed(Instant.ofEpochMilli(millis), ZoneOffset.UTC));
+    }
+}
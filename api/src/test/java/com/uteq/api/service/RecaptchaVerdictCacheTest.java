@@ -0,0 +1,141 @@
+package com.uteq.api.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecaptchaVerdictCacheTest {
+
+    private static final String CLIENT = "10.0.0.1|Mozilla";
+
+    private RecaptchaVerdictCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new RecaptchaVerdictCache(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "enabled", true);
+        ReflectionTestUtils.setField(cache, "maxEntries", 100);
+        ReflectionTestUtils.setField(cache, "ttlSeconds", 120L);
+        cache.init();
+    }
+
+    @Test
+    void retryAfterAFailedActionIsAccepted() {
+        RecaptchaVerdictCache.Reservation first = cache.reserve("token", "login", CLIENT);
+        first.verdict().complete(true);
+        assertTrue(first.claim().verdict().join());
+
+        // Contraseña incorrecta o SRVBSY: la transacción no consume el token
+        first.claim().finish(false);
+
+        RecaptchaVerdictCache.Reservation retry = cache.reserve("token", "login", CLIENT);
+        assertFalse(retry.owner());
+        assertTrue(retry.claim().verdict().join());
+    }
+
+    @Test
+    void replayAfterASuccessfulActionIsRejected() {
+        RecaptchaVerdictCache.Reservation first = cache.reserve("token", "login", CLIENT);
+        first.verdict().complete(true);
+        first.claim().succeeded();
+        first.claim().finish(true);
+
+        RecaptchaVerdictCache.Claim replay = cache.reserve("token", "login", CLIENT).claim();
+        assertTrue(replay.verdict().isDone());
+        assertFalse(replay.verdict().join());
+    }
+
+    @Test
+    void successWithoutCommitDoesNotConsumeTheToken() {
+        RecaptchaVerdictCache.Reservation first = cache.reserve("token", "register", CLIENT);
+        first.verdict().complete(true);
+        first.claim().succeeded();
+        first.claim().finish(false);
+
+        assertTrue(cache.reserve("token", "register", CLIENT).claim().verdict().join());
+    }
+
+    @Test
+    void concurrentDuplicateWaitsForTheFirstRequest() {
+        RecaptchaVerdictCache.Reservation first = cache.reserve("token", "login", CLIENT);
+        RecaptchaVerdictCache.Reservation second = cache.reserve("token", "login", CLIENT);
+
+        assertTrue(first.owner());
+        assertFalse(second.owner());
+        assertSame(first.verdict(), second.verdict());
+
+        first.verdict().complete(true);
+        assertTrue(first.claim().verdict().join());
+        assertFalse(second.claim().verdict().isDone());
+
+        first.claim().succeeded();
+        first.claim().finish(true);
+        assertFalse(second.claim().verdict().join());
+    }
+
+    @Test
+    void concurrentDuplicateProceedsWhenTheFirstRequestFails() {
+        RecaptchaVerdictCache.Reservation first = cache.reserve("token", "login", CLIENT);
+        RecaptchaVerdictCache.Reservation second = cache.reserve("token", "login", CLIENT);
+        first.verdict().complete(true);
+
+        first.claim().finish(false);
+
+        assertTrue(second.claim().verdict().join());
+    }
+
+    @Test
+    void abandonedWaiterDoesNotKeepTheVerdict() {
+        RecaptchaVerdictCache.Reservation first = cache.reserve("token", "login", CLIENT);
+        RecaptchaVerdictCache.Claim waiter = cache.reserve("token", "login", CLIENT).claim();
+        first.verdict().complete(true);
+
+        // El duplicado se rinde (p. ej. await-timeout-ms) antes de obtener el turno
+        waiter.finish(false);
+        assertFalse(waiter.verdict().join());
+        first.claim().finish(false);
+
+        assertTrue(cache.reserve("token", "login", CLIENT).claim().verdict().join());
+    }
+
+    @Test
+    void rejectedVerdictIsReusedWithoutCallingTheProviderAgain() {
+        RecaptchaVerdictCache.Reservation first = cache.reserve("token", "login", CLIENT);
+        first.verdict().complete(false);
+        first.claim().finish(false);
+
+        RecaptchaVerdictCache.Reservation retry = cache.reserve("token", "login", CLIENT);
+        assertFalse(retry.owner());
+        assertFalse(retry.claim().verdict().join());
+    }
+
+    @Test
+    void verdictIsNotSharedAcrossActionsOrClients() {
+        cache.reserve("token", "login", CLIENT).verdict().complete(true);
+
+        assertTrue(cache.reserve("token", "reset-password", CLIENT).owner());
+        assertTrue(cache.reserve("token", "login", "10.0.0.2|Mozilla").owner());
+    }
+
+    @Test
+    void invalidatedEntryIsVerifiedAgain() {
+        cache.reserve("token", "login", CLIENT).verdict().complete(true);
+
+        cache.invalidate("token", "login", CLIENT);
+
+        assertTrue(cache.reserve("token", "login", CLIENT).owner());
+    }
+
+    @Test
+    void missingTokenIsRejected() {
+        RecaptchaVerdictCache.Claim claim = cache.rejected();
+
+        assertFalse(claim.verdict().join());
+        claim.finish(true);
+    }
+}
@@ -0,0 +1,180 @@
+package com.uteq.api.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RefreshTokenStoreTest {
+
+    private final UUID sessionId = UUID.randomUUID();
+
+    private FakeJdbcTemplate jdbcTemplate;
+    private SessionRevocationService sessionRevocationService;
+    private RefreshTokenStore store;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = new FakeJdbcTemplate();
+        sessionRevocationService = mock(SessionRevocationService.class);
+        store = newReplica();
+        store.register(sessionId);
+    }
+
+    @Test
+    void rotatesOnlyTheCurrentGeneration() {
+        assertEquals(OptionalInt.of(1), store.rotate(sessionId, 0));
+        assertEquals(OptionalInt.of(2), store.rotate(sessionId, 1));
+        assertEquals(2, jdbcTemplate.generation(sessionId));
+        verify(sessionRevocationService, never()).revoke(any());
+    }
+
+    @Test
+    void previousGenerationWithinGraceGetsTheCurrentOne() {
+        store.rotate(sessionId, 0);
+
+        assertEquals(OptionalInt.of(1), store.rotate(sessionId, 0));
+        assertEquals(1, jdbcTemplate.generation(sessionId));
+        verify(sessionRevocationService, never()).revoke(any());
+    }
+
+    @Test
+    void reuseAfterGraceRevokesTheSession() {
+        store.rotate(sessionId, 0);
+        store.rotate(sessionId, 1);
+        jdbcTemplate.age(sessionId, 60_000);
+
+        assertTrue(store.rotate(sessionId, 1).isEmpty());
+        verify(sessionRevocationService).revoke(sessionId);
+        assertEquals(1, jdbcTemplate.closedSessions);
+    }
+
+    @Test
+    void generationNewerThanCurrentIsRejected() {
+        assertTrue(store.rotate(sessionId, 5).isEmpty());
+        verify(sessionRevocationService).revoke(sessionId);
+    }
+
+    @Test
+    void rereadsTheRowWhenAnotherReplicaRotated() {
+        RefreshTokenStore otherReplica = newReplica();
+        store.rotate(sessionId, 0);
+
+        // La otra réplica no conoce la familia: la lee de la BD y rota 1 -> 2
+        assertEquals(OptionalInt.of(2), otherReplica.rotate(sessionId, 1));
+
+        // Esta réplica aún cree que la vigente es 1: el compare-and-set falla y relee
+        assertEquals(OptionalInt.of(2), store.rotate(sessionId, 1));
+        verify(sessionRevocationService, never()).revoke(any());
+
+        jdbcTemplate.age(sessionId, 60_000);
+        assertTrue(store.rotate(sessionId, 1).isEmpty());
+        verify(sessionRevocationService).revoke(sessionId);
+    }
+
+    @Test
+    void concurrentRefreshesWithTheSameTokenShareOneRotation() throws Exception {
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<OptionalInt>> results = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return store.rotate(sessionId, 0);
+                }));
+            }
+            start.countDown();
+
+            for (Future<OptionalInt> result : results) {
+                assertEquals(OptionalInt.of(1), result.get());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, jdbcTemplate.generation(sessionId));
+        verify(sessionRevocationService, never()).revoke(any());
+    }
+
+    private RefreshTokenStore newReplica() {
+        RefreshTokenStore replica = new RefreshTokenStore(jdbcTemplate, null, sessionRevocationService);
+        ReflectionTestUtils.setField(replica, "graceSeconds", 10L);
+        return replica;
+    }
+
+    /**
+     * pl_refresh_token en memoria con la semántica del upsert condicional.
+     */
+    private static final class FakeJdbcTemplate extends JdbcTemplate {
+
+        private final Map<UUID, Row> rows = new HashMap<>();
+        private int closedSessions;
+
+        @Override
+        public synchronized <T> List<T> query(String sql, RowMapper<T> rowMapper, Object... args) {
+            Row row = rows.get((UUID) args[0]);
+            if (row == null) {
+                return List.of();
+            }
+            try {
+                ResultSet rs = mock(ResultSet.class);
+                when(rs.getInt("generation")).thenReturn(row.generation());
+                when(rs.getTimestamp("date_update")).thenReturn(new Timestamp(row.updatedAt()));
+                return List.of(rowMapper.mapRow(rs, 0));
+            } catch (SQLException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        @Override
+        public synchronized int update(String sql, Object... args) {
+            if (sql.startsWith("UPDATE pl_session_user")) {
+                closedSessions++;
+                return 1;
+            }
+            UUID id = (UUID) args[0];
+            Row current = rows.get(id);
+            if (current != null && current.generation() != (int) args[3]) {
+                return 0;
+            }
+            rows.put(id, new Row((int) args[1], ((Timestamp) args[2]).getTime()));
+            return 1;
+        }
+
+        synchronized int generation(UUID id) {
+            return rows.get(id).generation();
+        }
+
+        synchronized void age(UUID id, long millis) {
+            Row row = rows.get(id);
+            rows.put(id, new Row(row.generation(), row.updatedAt() - millis));
+        }
+    }
+
+    private record Row(int generation, long updatedAt) {
+    }
+}
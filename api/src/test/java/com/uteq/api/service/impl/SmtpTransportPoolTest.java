@@ -0,0 +1,83 @@
+package com.uteq.api.service.impl;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Address;
+import jakarta.mail.Message;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.InternetAddress;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SmtpTransportPoolTest {
+
+    private Session session;
+    private SmtpTransportPool pool;
+
+    @BeforeEach
+    void setUp() {
+        session = mock(Session.class);
+        JavaMailSenderImpl mailSender = mock(JavaMailSenderImpl.class);
+        when(mailSender.getProtocol()).thenReturn("smtp");
+        when(mailSender.getSession()).thenReturn(session);
+
+        pool = new SmtpTransportPool(mailSender, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(pool, "enabled", true);
+        ReflectionTestUtils.setField(pool, "maxConnections", 1);
+        ReflectionTestUtils.setField(pool, "maxBatchSize", 20);
+        ReflectionTestUtils.setField(pool, "idleTimeoutSeconds", 60L);
+        ReflectionTestUtils.setField(pool, "validateAfterSeconds", 10L);
+        ReflectionTestUtils.setField(pool, "sendTimeoutMs", 1000L);
+        ReflectionTestUtils.invokeMethod(pool, "init");
+    }
+
+    @Test
+    void brokenConnectionIsReplacedAndTheMessageRetried() throws Exception {
+        Transport broken = mock(Transport.class);
+        Transport fresh = mock(Transport.class);
+        when(session.getTransport("smtp")).thenReturn(broken, fresh);
+        doThrow(new MessagingException("Connection reset"))
+                .when(broken).sendMessage(any(Message.class), any(Address[].class));
+
+        pool.send(message());
+
+        verify(broken).close();
+        verify(fresh).sendMessage(any(Message.class), any(Address[].class));
+    }
+
+    @Test
+    void messageFailsAfterTheRetryOnANewConnection() throws Exception {
+        Transport first = mock(Transport.class);
+        Transport second = mock(Transport.class);
+        when(session.getTransport("smtp")).thenReturn(first, second);
+        doThrow(new MessagingException("Connection reset"))
+                .when(first).sendMessage(any(Message.class), any(Address[].class));
+        doThrow(new MessagingException("Connection reset"))
+                .when(second).sendMessage(any(Message.class), any(Address[].class));
+
+        assertThrows(MessagingException.class, () -> pool.send(message()));
+
+        verify(first, times(1)).sendMessage(any(Message.class), any(Address[].class));
+        verify(second, times(1)).sendMessage(any(Message.class), any(Address[].class));
+    }
+
+    private static MimeMessage message() throws MessagingException {
+        MimeMessage message = new MimeMessage((Session) null);
+        message.setRecipient(Message.RecipientType.TO, new InternetAddress("usuario@uteq.edu.ec"));
+        message.setSubject("Recuperación de contraseña");
+        message.setText("123456");
+        return message;
+    }
+}
@@ -92,6 +92,10 @@ apiClient.interceptors.response.use(
                     if (response.data.success) {
                         const newToken = response.data.token;
                         localStorage.setItem("token", newToken);
+                        // El refresh token es de un solo uso: guardar el rotado
+                        if (response.data.refreshToken) {
+                            localStorage.setItem("refreshToken", response.data.refreshToken);
+                        }
                         apiClient.defaults.headers.common["Authorization"] = "Bearer " + newToken;
                         originalRequest.headers["Authorization"] = "Bearer " + newToken;
                         processQueue(null, newToken);
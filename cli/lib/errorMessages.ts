@@ -8,6 +8,11 @@ export const ERROR_MESSAGES: Record<string, string> = {
     USNVLD: "Nombre de usuario no válido",
     PSWINC: "Contraseña incorrecta",
     PSWNVD: "Contraseña no válida",
+    LGNLIM: "Demasiados intentos fallidos. Intente más tarde",
+    TKNREQ: "Debe iniciar sesión para continuar",
+    TKNINV: "La sesión expiró. Inicie sesión nuevamente",
+    ADMREQ: "No tiene permisos para realizar esta acción",
+    PTHNVD: "Ruta no válida",
 
     // Registration errors
     USRREX: "Registro exitoso",
@@ -58,6 +63,7 @@ export const ERROR_MESSAGES: Record<string, string> = {
     // Generic errors
     ERRORE: "Error en el servidor",
     SRVERR: "Error en el servidor. Intente nuevamente",
+    SRVBSY: "El servidor está ocupado. Intente nuevamente en unos segundos",
     NETERR: "Error de conexión. Verifica tu internet",
     UNKERR: "Error desconocido. Intente nuevamente",
 };